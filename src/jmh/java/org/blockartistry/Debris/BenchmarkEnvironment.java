@@ -0,0 +1,55 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraftforge.fml.common.ModMetadata;
+
+/**
+ * Brings up enough of the game and mod state for the benchmarks to run
+ * headless: the vanilla registries and the mod metadata that ModLog and the
+ * resource locations depend on.
+ */
+public final class BenchmarkEnvironment {
+
+	private static boolean initialized = false;
+
+	private BenchmarkEnvironment() {
+	}
+
+	public static synchronized void init() {
+		if (initialized)
+			return;
+
+		Bootstrap.register();
+
+		final ModMetadata data = new ModMetadata();
+		data.modId = "debris";
+		data.name = "Debris";
+		Debris.metadata = data;
+
+		initialized = true;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.BenchmarkEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.world.storage.loot.LootContext;
+import net.minecraft.world.storage.loot.LootPool;
+import net.minecraft.world.storage.loot.LootTable;
+
+/**
+ * Cost of generating the drops for one debris harvest: vanilla loot
+ * generation with a new LootContext and result list, the compiled table
+ * collecting into a list, and the compiled table streaming to a consumer.
+ * The gc profiler configured for the jmh task reports the allocation per
+ * harvest as gc.alloc.rate.norm; what is left on the streaming path is the
+ * dropped ItemStacks themselves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DropBenchmark {
+
+	private final Random rand = new Random(1234L);
+
+	private LootTable table;
+	private CompiledLootTable compiled;
+	private CompiledLootTable.IContextSource context;
+	private Sink sink;
+
+	private static final class Sink implements IDropConsumer {
+		public Blackhole blackhole;
+
+		@Override
+		public void accept(@Nonnull final ItemStack stack) {
+			this.blackhole.consume(stack);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		BenchmarkEnvironment.init();
+		final LootPool pool = new LootPoolBuilder("pile_of_rubble").setRoll(1, 3).add("minecraft:cobblestone", 80, 1, 3)
+				.add("minecraft:gravel", 60, 1, 2).add("minecraft:coal", 30, 1, 4).add("minecraft:iron_ore", 10, 1, 1)
+				.add("minecraft:flint", 20, 1, 2).add("minecraft:torch", 15, 1, 6).build();
+		this.table = new LootTable(new LootPool[] { pool });
+		this.compiled = CompiledLootTable.get(this.table);
+		this.context = new CompiledLootTable.IContextSource() {
+			@Override
+			@Nonnull
+			public LootContext get() {
+				return newContext();
+			}
+		};
+		this.sink = new Sink();
+	}
+
+	@Nonnull
+	private static LootContext newContext() {
+		// Item entries never look at the world or any of the entities
+		return new LootContext(0F, null, null, null, null, null);
+	}
+
+	@Benchmark
+	public List<ItemStack> vanilla() {
+		return this.table.generateLootForPools(this.rand, newContext());
+	}
+
+	@Benchmark
+	public List<ItemStack> compiledList() {
+		final List<ItemStack> drops = new ArrayList<ItemStack>();
+		this.compiled.generate(new IDropConsumer() {
+			@Override
+			public void accept(@Nonnull final ItemStack stack) {
+				drops.add(stack);
+			}
+		}, this.rand, 0F, this.context);
+		return drops;
+	}
+
+	@Benchmark
+	public void compiledConsumer(@Nonnull final Blackhole blackhole) {
+		this.sink.blackhole = blackhole;
+		this.compiled.generate(this.sink, this.rand, 0F, this.context);
+	}
+}
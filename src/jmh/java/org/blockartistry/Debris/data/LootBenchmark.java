@@ -0,0 +1,81 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.blockartistry.Debris.BenchmarkEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.world.storage.loot.LootPool;
+import net.minecraft.world.storage.loot.LootTable;
+
+/**
+ * Cost of merging an external loot table into a debris table, which happens
+ * for every debris table on each loot table load.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LootBenchmark {
+
+	private LootTable target;
+	private LootTable source;
+
+	private static LootPool pool(final String name, final String... items) {
+		final LootPoolBuilder builder = new LootPoolBuilder(name).setRoll(3, 3);
+		int weight = 10;
+		for (final String item : items)
+			builder.add(item, weight += 10, 1, 4);
+		return builder.build();
+	}
+
+	@Setup(Level.Trial)
+	public void init() {
+		BenchmarkEnvironment.init();
+		this.source = new LootTable(new LootPool[] {
+				pool("pile_of_rubble", "minecraft:stone", "minecraft:coal", "minecraft:iron_ore", "minecraft:torch"),
+				pool("extra", "minecraft:bone", "minecraft:arrow") });
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		// Merge modifies the target so each invocation gets a fresh one
+		this.target = new LootTable(new LootPool[] { pool("pile_of_rubble", "minecraft:cobblestone",
+				"minecraft:gravel", "minecraft:stone", "minecraft:dirt", "minecraft:sand", "minecraft:flint") });
+	}
+
+	@Benchmark
+	public LootTable merge() {
+		return Loot.merge(this.target, this.source);
+	}
+}
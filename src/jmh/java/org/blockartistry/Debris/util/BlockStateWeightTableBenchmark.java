@@ -0,0 +1,78 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.blockartistry.Debris.BenchmarkEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.block.BlockStone;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+
+/**
+ * Cost of picking the block state for a debris placement, both from the
+ * mutable table and from its frozen form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockStateWeightTableBenchmark {
+
+	private final Random rand = new Random(1234L);
+
+	private BlockStateWeightTable table;
+	private CompiledWeightTable<IBlockState> frozen;
+
+	@Setup
+	public void setup() {
+		BenchmarkEnvironment.init();
+
+		this.table = new BlockStateWeightTable();
+		int weight = 10;
+		for (final BlockStone.EnumType type : BlockStone.EnumType.values())
+			this.table.add(Blocks.STONE.getDefaultState().withProperty(BlockStone.VARIANT, type), weight += 5);
+
+		this.frozen = this.table.freeze();
+	}
+
+	@Benchmark
+	public IBlockState nextState() {
+		return this.table.nextState(this.rand);
+	}
+
+	@Benchmark
+	public IBlockState frozenNext() {
+		return this.frozen.next(this.rand);
+	}
+}
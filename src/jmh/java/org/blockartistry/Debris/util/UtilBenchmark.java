@@ -0,0 +1,94 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.blockartistry.Debris.BenchmarkEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * String handling helpers that run while configuration and loot tables are
+ * being processed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilBenchmark {
+
+	private Translations translations;
+
+	@Setup
+	public void setup() {
+		BenchmarkEnvironment.init();
+
+		this.translations = new Translations();
+		this.translations.put("tile.debris.pile_of_rubble.name", "Pile of Rubble");
+		this.translations.put("msg.Placed", "Placed %d debris in chunk [%d, %d]");
+	}
+
+	@Benchmark
+	public int[] splitToIntsShort() {
+		return MyUtils.splitToInts("-1,1", ',');
+	}
+
+	@Benchmark
+	public int[] splitToIntsLong() {
+		return MyUtils.splitToInts("-1,1,7,-100,20,42,-2,3,4,5,6,8,9,10", ',');
+	}
+
+	@Benchmark
+	public ItemStack getItemStackPlain() {
+		return RegistryHelper.getItemStack("minecraft:cobblestone");
+	}
+
+	@Benchmark
+	public ItemStack getItemStackSubtype() {
+		return RegistryHelper.getItemStack("minecraft:stone:3");
+	}
+
+	@Benchmark
+	public String formatNoParameters() {
+		return this.translations.format("tile.debris.pile_of_rubble.name");
+	}
+
+	@Benchmark
+	public String formatWithParameters() {
+		return this.translations.format("msg.Placed", 12, -4, 17);
+	}
+
+	@Benchmark
+	public String formatMissingKey() {
+		return this.translations.format("msg.Missing");
+	}
+}
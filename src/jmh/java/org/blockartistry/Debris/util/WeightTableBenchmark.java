@@ -0,0 +1,120 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Draw cost of the weight table implementations across table sizes. The
+ * linearScan case is the original list walk that WeightTable.next used and
+ * is kept here as the baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeightTableBenchmark {
+
+	private static class Entry extends WeightTable.Item {
+
+		public final int id;
+
+		public Entry(final int weight, final int id) {
+			super(weight);
+			this.id = id;
+		}
+	}
+
+	@Param({ "2", "16", "256", "4096" })
+	public int size;
+
+	private final Random rand = new Random(1234L);
+
+	private List<Entry> list;
+	private int listTotal;
+	private WeightTable<Entry> alias;
+	private FenwickWeightTable<Entry> fenwick;
+	private CompiledWeightTable<Entry> compiled;
+
+	@Setup
+	public void setup() {
+		final Random gen = new Random(42L);
+		this.list = new ArrayList<Entry>();
+		this.listTotal = 0;
+		this.alias = new WeightTable<Entry>();
+		this.fenwick = new FenwickWeightTable<Entry>();
+
+		final int[] weights = new int[this.size];
+		final Entry[] values = new Entry[this.size];
+		for (int i = 0; i < this.size; i++) {
+			final Entry e = new Entry(1 + gen.nextInt(100), i);
+			this.list.add(e);
+			this.listTotal += e.itemWeight;
+			this.alias.add(e);
+			this.fenwick.add(e);
+			weights[i] = e.itemWeight;
+			values[i] = e;
+		}
+		this.compiled = new CompiledWeightTable<Entry>(weights, values);
+
+		// Make sure the alias table is compiled outside of the measurement
+		this.alias.next(this.rand);
+	}
+
+	@Benchmark
+	public Entry linearScan() {
+		int targetWeight = this.rand.nextInt(this.listTotal);
+		int i = 0;
+		for (i = this.list.size(); (targetWeight -= this.list.get(i - 1).itemWeight) >= 0; i--)
+			;
+		return this.list.get(i - 1);
+	}
+
+	@Benchmark
+	public Entry aliasTable() {
+		return this.alias.next(this.rand);
+	}
+
+	@Benchmark
+	public Entry compiledTable() {
+		return this.compiled.next(this.rand);
+	}
+
+	@Benchmark
+	public Entry fenwickTable() {
+		return this.fenwick.next(this.rand);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.concurrent.TimeUnit;
+
+import org.blockartistry.Debris.ModOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to decorate a 16x16 square of chunks in a freshly generated headless
+ * world. Each invocation gets a new world so that every chunk is decorated
+ * exactly once. Run with and without direct chunk writes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class DecorationBenchmark {
+
+	private static final int SIZE = 16;
+
+	@Param({ "false", "true" })
+	public boolean directWrites;
+
+	private HeadlessWorld world;
+	private long seed = 1234L;
+	private boolean saved;
+
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		this.saved = ModOptions.directWrites;
+		ModOptions.directWrites = this.directWrites;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownTrial() {
+		ModOptions.directWrites = this.saved;
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		this.world = DecorationHarness.createWorld(this.seed++, SIZE);
+	}
+
+	@Benchmark
+	public HeadlessWorld decorate() {
+		DecorationHarness.decorate(this.world, SIZE);
+		return this.world;
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.BenchmarkEnvironment;
+import org.blockartistry.Debris.blocks.ModBlocks;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.terraingen.DecorateBiomeEvent;
+import net.minecraftforge.event.terraingen.DecorateBiomeEvent.Decorate.EventType;
+
+/**
+ * Fires synthetic decoration events across a square of chunks in a
+ * HeadlessWorld and reports throughput, placement success and allocation.
+ * Runs without a Minecraft server:
+ *
+ * gradlew decorationHarness
+ *
+ * or directly with the jmh runtime classpath and the arguments
+ * [seed] [chunks per side]. DecorationHarnessTest runs it on a small square
+ * as part of "gradlew check".
+ */
+public final class DecorationHarness {
+
+	private static boolean registered = false;
+
+	public static final class Result {
+		public int chunks;
+		public long nanos;
+		public long attempts;
+		public long placed;
+		public long allocatedBytes;
+
+		public double chunksPerSecond() {
+			return this.chunks / (this.nanos / 1.0E9D);
+		}
+
+		public double successRate() {
+			return this.attempts == 0 ? 0 : (double) this.placed / (double) this.attempts;
+		}
+
+		public long bytesPerChunk() {
+			return this.chunks == 0 ? 0 : this.allocatedBytes / this.chunks;
+		}
+
+		@Override
+		@Nonnull
+		public String toString() {
+			return String.format("chunks: %d, chunks/sec: %.1f, placed: %d/%d (%.1f%%), allocation: %d bytes/chunk",
+					this.chunks, chunksPerSecond(), this.placed, this.attempts, successRate() * 100.0D,
+					bytesPerChunk());
+		}
+	}
+
+	private DecorationHarness() {
+	}
+
+	public static synchronized void init() {
+		BenchmarkEnvironment.init();
+		if (!registered) {
+			DebrisBiomeDecorator.init();
+			registered = true;
+		}
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	static long countDebris(@Nonnull final Chunk chunk) {
+		long count = 0;
+		for (final ExtendedBlockStorage section : chunk.getBlockStorageArray()) {
+			if (section == Chunk.NULL_BLOCK_STORAGE || section.isEmpty())
+				continue;
+			for (int y = 0; y < 16; y++)
+				for (int z = 0; z < 16; z++)
+					for (int x = 0; x < 16; x++)
+						if (section.get(x, y, z).getBlock() == ModBlocks.DEBRIS)
+							count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Pre-generates the terrain for a size x size square of chunks plus the
+	 * border row needed by the decoration window.
+	 */
+	@Nonnull
+	public static HeadlessWorld createWorld(final long seed, final int size) {
+		init();
+		final HeadlessWorld world = new HeadlessWorld(seed);
+		for (int cx = 0; cx <= size; cx++)
+			for (int cz = 0; cz <= size; cz++)
+				world.generate(cx, cz);
+		return world;
+	}
+
+	/**
+	 * Decorates each chunk of the size x size square once, in order. Returns
+	 * the number of placement attempts the decorator was asked to make, as
+	 * DebrisBiomeDecorator.getAttempts() gives them just before each chunk.
+	 */
+	public static long decorate(@Nonnull final HeadlessWorld world, final int size) {
+		final Random rand = new Random();
+		final long seed = world.getSeed();
+		final int dimension = world.provider.getDimension();
+		final int groundLevel = world.provider.getAverageGroundLevel();
+		long attempts = 0;
+		for (int cx = 0; cx < size; cx++) {
+			for (int cz = 0; cz < size; cz++) {
+				rand.setSeed(seed ^ (cx * 341873128712L + cz * 132897987541L));
+				final BlockPos pos = new BlockPos(cx << 4, 0, cz << 4);
+				attempts += getAttempts(world, pos, dimension, groundLevel);
+				MinecraftForge.TERRAIN_GEN_BUS
+						.post(new DecorateBiomeEvent.Decorate(world, rand, pos, EventType.FLOWERS));
+			}
+		}
+		return attempts;
+	}
+
+	private static int getAttempts(@Nonnull final HeadlessWorld world, @Nonnull final BlockPos origin,
+			final int dimension, final int groundLevel) {
+		// Same checks the decorator makes before it places anything
+		final DebrisProfile profile = DebrisProfiles.get().getProfile(dimension,
+				world.getBiome(origin.add(16, 0, 16)));
+		if (!profile.isEnabled() || profile.getMaxY(groundLevel) - profile.getMinY() < 1)
+			return 0;
+		final int attempts = DebrisBiomeDecorator.getAttempts(profile, world.getSeed(), dimension, groundLevel,
+				origin.getX() >> 4, origin.getZ() >> 4);
+		return Math.max(attempts, 0);
+	}
+
+	@Nonnull
+	public static Result run(final long seed, final int size) {
+		final HeadlessWorld world = createWorld(seed, size);
+		final Result result = new Result();
+		result.chunks = size * size;
+
+		final long startBytes = allocatedBytes();
+		final long start = System.nanoTime();
+		result.attempts = decorate(world, size);
+		result.nanos = System.nanoTime() - start;
+		result.allocatedBytes = allocatedBytes() - startBytes;
+
+		for (int cx = 0; cx <= size; cx++)
+			for (int cz = 0; cz <= size; cz++)
+				result.placed += countDebris(world.generate(cx, cz));
+
+		return result;
+	}
+
+	public static void main(@Nonnull final String[] args) {
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 1234L;
+		final int size = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+		// First pass warms up the JIT; the second is reported
+		run(seed, Math.min(size, 16));
+		final Result result = run(seed, size);
+		System.out.println("Debris decoration: " + result);
+
+		if (result.placed == 0) {
+			System.err.println("No debris was placed");
+			System.exit(1);
+		}
+	}
+}
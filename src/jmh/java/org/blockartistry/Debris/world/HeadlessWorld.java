@@ -0,0 +1,119 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * In-memory World that needs no server, save handler or network. Chunks are
+ * created from a SyntheticTerrain the first time they are asked for and are
+ * kept for the life of the world.
+ */
+public class HeadlessWorld extends World {
+
+	protected final SyntheticTerrain terrain;
+
+	public HeadlessWorld(final long seed) {
+		super(null, new WorldInfo(new WorldSettings(seed, GameType.SURVIVAL, false, false, WorldType.DEFAULT),
+				"headless"), new WorldProviderSurface(), new Profiler(), false);
+		this.terrain = new SyntheticTerrain(seed);
+		this.provider.registerWorld(this);
+		this.chunkProvider = createChunkProvider();
+	}
+
+	@Nonnull
+	public SyntheticTerrain getTerrain() {
+		return this.terrain;
+	}
+
+	@Override
+	@Nonnull
+	protected IChunkProvider createChunkProvider() {
+		return new ChunkProvider();
+	}
+
+	@Override
+	protected boolean isChunkLoaded(final int x, final int z, final boolean allowEmpty) {
+		return this.chunkProvider.getLoadedChunk(x, z) != null;
+	}
+
+	/**
+	 * Makes sure the chunk exists. Used to generate terrain ahead of a
+	 * measurement so that generation is not counted.
+	 */
+	@Nonnull
+	public Chunk generate(final int chunkX, final int chunkZ) {
+		return this.chunkProvider.provideChunk(chunkX, chunkZ);
+	}
+
+	private class ChunkProvider implements IChunkProvider {
+
+		private final TLongObjectHashMap<Chunk> chunks = new TLongObjectHashMap<Chunk>();
+
+		@Override
+		@Nullable
+		public Chunk getLoadedChunk(final int x, final int z) {
+			return this.chunks.get(ChunkPos.asLong(x, z));
+		}
+
+		@Override
+		@Nonnull
+		public Chunk provideChunk(final int x, final int z) {
+			final long key = ChunkPos.asLong(x, z);
+			Chunk chunk = this.chunks.get(key);
+			if (chunk == null) {
+				chunk = new Chunk(HeadlessWorld.this, HeadlessWorld.this.terrain.generate(x, z), x, z);
+				chunk.generateSkylightMap();
+				chunk.setTerrainPopulated(true);
+				this.chunks.put(key, chunk);
+			}
+			return chunk;
+		}
+
+		@Override
+		public boolean unloadQueuedChunks() {
+			return false;
+		}
+
+		@Override
+		@Nonnull
+		public String makeString() {
+			return "HeadlessChunkProvider: " + this.chunks.size();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import javax.annotation.Nonnull;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.world.chunk.ChunkPrimer;
+
+/**
+ * Seeded stand-in for the vanilla terrain generator: a gently rolling stone
+ * surface capped with dirt and grass, a bedrock floor, and caves carved out of
+ * low frequency 3D value noise. The same seed always produces the same
+ * terrain.
+ */
+public class SyntheticTerrain {
+
+	private static final IBlockState BEDROCK = Blocks.BEDROCK.getDefaultState();
+	private static final IBlockState STONE = Blocks.STONE.getDefaultState();
+	private static final IBlockState DIRT = Blocks.DIRT.getDefaultState();
+	private static final IBlockState GRASS = Blocks.GRASS.getDefaultState();
+
+	private static final int SURFACE = 64;
+	private static final double CAVE_SCALE = 12.0D;
+	private static final double CAVE_THRESHOLD = 0.62D;
+
+	private final long seed;
+
+	public SyntheticTerrain(final long seed) {
+		this.seed = seed;
+	}
+
+	private double hash(final int x, final int y, final int z) {
+		long h = this.seed;
+		h ^= x * 0x9E3779B97F4A7C15L;
+		h ^= y * 0xC2B2AE3D27D4EB4FL;
+		h ^= z * 0x165667B19E3779F9L;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return (h >>> 11) * 0x1.0p-53;
+	}
+
+	private static double lerp(final double t, final double a, final double b) {
+		return a + t * (b - a);
+	}
+
+	private static double fade(final double t) {
+		return t * t * (3.0D - 2.0D * t);
+	}
+
+	/**
+	 * Trilinear value noise in the range [0, 1).
+	 */
+	public double noise(final double x, final double y, final double z) {
+		final int x0 = (int) Math.floor(x);
+		final int y0 = (int) Math.floor(y);
+		final int z0 = (int) Math.floor(z);
+		final double fx = fade(x - x0);
+		final double fy = fade(y - y0);
+		final double fz = fade(z - z0);
+
+		final double c00 = lerp(fx, hash(x0, y0, z0), hash(x0 + 1, y0, z0));
+		final double c10 = lerp(fx, hash(x0, y0 + 1, z0), hash(x0 + 1, y0 + 1, z0));
+		final double c01 = lerp(fx, hash(x0, y0, z0 + 1), hash(x0 + 1, y0, z0 + 1));
+		final double c11 = lerp(fx, hash(x0, y0 + 1, z0 + 1), hash(x0 + 1, y0 + 1, z0 + 1));
+
+		return lerp(fz, lerp(fy, c00, c10), lerp(fy, c01, c11));
+	}
+
+	public int getSurfaceHeight(final int x, final int z) {
+		return SURFACE + (int) (noise(x / 32.0D, 0, z / 32.0D) * 8.0D) - 4;
+	}
+
+	public boolean isCave(final int x, final int y, final int z) {
+		return noise(x / CAVE_SCALE, y / (CAVE_SCALE * 0.5D), z / CAVE_SCALE) > CAVE_THRESHOLD;
+	}
+
+	@Nonnull
+	public ChunkPrimer generate(final int chunkX, final int chunkZ) {
+		final ChunkPrimer primer = new ChunkPrimer();
+		for (int lx = 0; lx < 16; lx++) {
+			final int x = (chunkX << 4) + lx;
+			for (int lz = 0; lz < 16; lz++) {
+				final int z = (chunkZ << 4) + lz;
+				final int surface = getSurfaceHeight(x, z);
+				primer.setBlockState(lx, 0, lz, BEDROCK);
+				for (int y = 1; y <= surface; y++) {
+					final IBlockState state;
+					if (y == surface)
+						state = GRASS;
+					else if (y > surface - 4)
+						state = DIRT;
+					else if (y > 4 && isCave(x, y, z))
+						continue;
+					else
+						state = STONE;
+					primer.setBlockState(lx, y, lz, state);
+				}
+			}
+		}
+		return primer;
+	}
+}
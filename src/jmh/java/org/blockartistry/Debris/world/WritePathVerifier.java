@@ -0,0 +1,125 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModOptions;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Decorates the same HeadlessWorld twice, once through setBlockState() and
+ * once with direct chunk writes, and checks that block states, height maps
+ * and light levels come out identical. Exits with a non-zero status on the
+ * first mismatch:
+ *
+ * gradlew verifyWritePath
+ *
+ * or directly with the jmh runtime classpath and the arguments
+ * [seed] [chunks per side]. WritePathTest runs the same comparison on a
+ * smaller square as part of "gradlew check".
+ */
+public final class WritePathVerifier {
+
+	private WritePathVerifier() {
+	}
+
+	@Nonnull
+	static HeadlessWorld decorate(final long seed, final int size, final boolean direct) {
+		final boolean saved = ModOptions.directWrites;
+		ModOptions.directWrites = direct;
+		try {
+			final HeadlessWorld world = DecorationHarness.createWorld(seed, size);
+			DecorationHarness.decorate(world, size);
+			return world;
+		} finally {
+			ModOptions.directWrites = saved;
+		}
+	}
+
+	/**
+	 * Returns a description of the first difference between the two worlds,
+	 * or null if they match.
+	 */
+	@Nullable
+	static String compare(@Nonnull final HeadlessWorld slow, @Nonnull final HeadlessWorld fast,
+			final int size) {
+		final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (int cx = 0; cx <= size; cx++) {
+			for (int cz = 0; cz <= size; cz++) {
+				final Chunk a = slow.generate(cx, cz);
+				final Chunk b = fast.generate(cx, cz);
+				for (int x = 0; x < 16; x++) {
+					for (int z = 0; z < 16; z++) {
+						if (a.getHeightValue(x, z) != b.getHeightValue(x, z))
+							return String.format("height map differs at chunk %d,%d column %d,%d", cx, cz, x, z);
+						for (int y = 0; y < 256; y++) {
+							pos.setPos((cx << 4) + x, y, (cz << 4) + z);
+							final IBlockState sa = a.getBlockState(pos);
+							final IBlockState sb = b.getBlockState(pos);
+							if (sa != sb)
+								return String.format("block differs at %s: %s vs %s", pos, sa, sb);
+							for (final EnumSkyBlock type : EnumSkyBlock.values())
+								if (a.getLightFor(type, pos) != b.getLightFor(type, pos))
+									return String.format("%s light differs at %s", type, pos);
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	public static void main(@Nonnull final String[] args) {
+		final long seed = args.length > 0 ? Long.parseLong(args[0]) : 1234L;
+		final int size = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+		final HeadlessWorld slow = decorate(seed, size, false);
+		final HeadlessWorld fast = decorate(seed, size, true);
+
+		long placed = 0;
+		for (int cx = 0; cx <= size; cx++)
+			for (int cz = 0; cz <= size; cz++)
+				placed += DecorationHarness.countDebris(fast.generate(cx, cz));
+		if (placed == 0) {
+			System.err.println("No debris was placed; nothing to compare");
+			System.exit(1);
+		}
+
+		final String mismatch = compare(slow, fast, size);
+		if (mismatch != null) {
+			System.err.println("Direct write path does not match setBlockState: " + mismatch);
+			System.exit(1);
+		}
+
+		System.out.println(String.format("Direct write path matches setBlockState across %d chunks (%d debris)",
+				size * size, placed));
+	}
+}
@@ -32,6 +32,7 @@ import java.util.Map.Entry;
 import org.apache.commons.lang3.StringUtils;
 import org.blockartistry.Debris.util.ConfigProcessor;
 import org.blockartistry.Debris.util.ConfigProcessor.Comment;
+import org.blockartistry.Debris.util.ConfigProcessor.MinMaxFloat;
 import org.blockartistry.Debris.util.ConfigProcessor.MinMaxInt;
 import org.blockartistry.Debris.util.ConfigProcessor.Parameter;
 import org.blockartistry.Debris.util.ConfigProcessor.RestartRequired;
@@ -117,6 +118,105 @@ public final class ModOptions {
 	@RestartRequired
 	public static String[] externalScriptFiles = {};
 
+	public static final String CATEGORY_GENERATION = "generation";
+	public static final String CONFIG_FLOOR_INDEX = "Floor Index Placement";
+	public static final String CONFIG_CHUNK_SEEDED_RANDOM = "Chunk Seeded Random";
+	public static final String CONFIG_ASYNC_PLANNING = "Off-thread Planning";
+	public static final String CONFIG_PLANNING_THREADS = "Planning Threads";
+	public static final String CONFIG_DIRECT_WRITES = "Direct Chunk Writes";
+	public static final String CONFIG_STRICT_WINDOW = "Strict Populate Window";
+	public static final String CONFIG_PROFILE_FILE = "Profile File";
+	public static final String CONFIG_CLUSTER = "Noise Clustering";
+	public static final String CONFIG_CLUSTER_CONTRAST = "Cluster Contrast";
+	public static final String CONFIG_ADAPTIVE = "Adaptive Attempts";
+	public static final String CONFIG_ADAPTIVE_TARGET = "Adaptive Target Rate";
+	public static final String CONFIG_ADAPTIVE_MIN = "Adaptive Min Attempts";
+	public static final String CONFIG_ADAPTIVE_MAX = "Adaptive Max Attempts";
+	public static final String CONFIG_RETROGEN = "Retrogen";
+	public static final String CONFIG_RETROGEN_BUDGET = "Retrogen Tick Budget";
+	public static final String CONFIG_COMMAND_BUDGET = "Command Tick Budget";
+
+	private static final List<String> generationSort = Arrays.asList(CONFIG_FLOOR_INDEX, CONFIG_CHUNK_SEEDED_RANDOM,
+			CONFIG_ASYNC_PLANNING, CONFIG_PLANNING_THREADS, CONFIG_DIRECT_WRITES, CONFIG_STRICT_WINDOW, CONFIG_PROFILE_FILE,
+			CONFIG_CLUSTER, CONFIG_CLUSTER_CONTRAST, CONFIG_ADAPTIVE, CONFIG_ADAPTIVE_TARGET, CONFIG_ADAPTIVE_MIN,
+			CONFIG_ADAPTIVE_MAX, CONFIG_RETROGEN, CONFIG_RETROGEN_BUDGET, CONFIG_COMMAND_BUDGET);
+
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_FLOOR_INDEX, defaultValue = "false", lang = "cfg.generation.FloorIndex")
+	@Comment("Scan the chunk for cave floor positions once and place debris from that list rather than random probing")
+	public static boolean useFloorIndex = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_CHUNK_SEEDED_RANDOM, defaultValue = "false", lang = "cfg.generation.ChunkSeeded")
+	@Comment("Derive debris layout from the world seed and chunk position so it does not depend on generation order or thread")
+	public static boolean chunkSeededRandom = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_ASYNC_PLANNING, defaultValue = "false", lang = "cfg.generation.AsyncPlanning")
+	@Comment("Plan debris placement on worker threads from a snapshot of the chunk; implies Chunk Seeded Random")
+	public static boolean asyncPlanning = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_PLANNING_THREADS, defaultValue = "0", lang = "cfg.generation.PlanningThreads")
+	@Comment("Number of worker threads used for off-thread planning (0 = half the available processors)")
+	@MinMaxInt(min = 0, max = 32)
+	@RestartRequired
+	public static int planningThreads = 0;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_DIRECT_WRITES, defaultValue = "false", lang = "cfg.generation.DirectWrites")
+	@Comment("Write debris straight into chunk storage without neighbor updates, deferring lighting fixes to once per chunk")
+	public static boolean directWrites = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_STRICT_WINDOW, defaultValue = "false", lang = "cfg.generation.StrictWindow")
+	@Comment("Keep decoration inside the already loaded population window; never load or generate neighboring chunks")
+	public static boolean strictWindow = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_PROFILE_FILE, defaultValue = "profiles.json", lang = "cfg.generation.ProfileFile")
+	@Comment("Json file in the config directory with per dimension and per biome debris profiles; read when a server starts")
+	public static String profileFile = "profiles.json";
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_CLUSTER, defaultValue = "false", lang = "cfg.generation.Cluster")
+	@Comment("Scale debris per chunk by a low frequency noise field so it forms dense clusters and sparse areas")
+	public static boolean clusterDebris = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_CLUSTER_CONTRAST, defaultValue = "2.0", lang = "cfg.generation.ClusterContrast")
+	@Comment("How strongly the noise field affects density; higher values leave more chunks empty")
+	@MinMaxFloat(min = 0, max = 10)
+	public static float clusterContrast = 2.0F;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_ADAPTIVE, defaultValue = "false", lang = "cfg.generation.Adaptive")
+	@Comment("Size the placement attempts per chunk from the success rate observed in the dimension; ignored when Chunk Seeded Random or Off-thread Planning is on")
+	public static boolean adaptiveAttempts = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_ADAPTIVE_TARGET, defaultValue = "0.25", lang = "cfg.generation.AdaptiveTarget")
+	@Comment("Success rate at which the configured density gives the intended amount of debris")
+	@MinMaxFloat(min = 0.01F, max = 1.0F)
+	public static float adaptiveTargetRate = 0.25F;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_ADAPTIVE_MIN, defaultValue = "8", lang = "cfg.generation.AdaptiveMin")
+	@Comment("Fewest placement attempts per chunk when adaptive")
+	@MinMaxInt(min = 1, max = 4096)
+	public static int adaptiveMinAttempts = 8;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_ADAPTIVE_MAX, defaultValue = "256", lang = "cfg.generation.AdaptiveMax")
+	@Comment("Most placement attempts per chunk when adaptive")
+	@MinMaxInt(min = 1, max = 4096)
+	public static int adaptiveMaxAttempts = 256;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_RETROGEN, defaultValue = "false", lang = "cfg.generation.Retrogen")
+	@Comment("Add debris in the background to existing chunks that were generated without it")
+	public static boolean retrogen = false;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_RETROGEN_BUDGET, defaultValue = "5", lang = "cfg.generation.RetrogenBudget")
+	@Comment("Milliseconds per server tick that retrogen may spend adding debris to existing chunks")
+	@MinMaxInt(min = 1, max = 50)
+	public static int retrogenBudget = 5;
+	@Parameter(category = CATEGORY_GENERATION, property = CONFIG_COMMAND_BUDGET, defaultValue = "10", lang = "cfg.generation.CommandBudget")
+	@Comment("Milliseconds per server tick that /debris purge and regen may spend")
+	@MinMaxInt(min = 1, max = 50)
+	public static int commandBudget = 10;
+
+	public static final String CATEGORY_HARVEST = "harvest";
+	public static final String CONFIG_COALESCE_DROPS = "Coalesce Drops";
+	public static final String CONFIG_MERGE_RADIUS = "Drop Merge Radius";
+	public static final String CONFIG_TO_INVENTORY = "Drops to Inventory";
+
+	private static final List<String> harvestSort = Arrays.asList(CONFIG_COALESCE_DROPS, CONFIG_MERGE_RADIUS,
+			CONFIG_TO_INVENTORY);
+
+	@Parameter(category = CATEGORY_HARVEST, property = CONFIG_COALESCE_DROPS, defaultValue = "true", lang = "cfg.harvest.Coalesce")
+	@Comment("Combine the drops of a broken debris block into as few stacks as possible before spawning them")
+	public static boolean coalesceDrops = true;
+	@Parameter(category = CATEGORY_HARVEST, property = CONFIG_MERGE_RADIUS, defaultValue = "0", lang = "cfg.harvest.MergeRadius")
+	@Comment("Blocks within which drops are added to items spawned by other debris during the same tick (0 = off)")
+	@MinMaxInt(min = 0, max = 4)
+	public static int dropMergeRadius = 0;
+	@Parameter(category = CATEGORY_HARVEST, property = CONFIG_TO_INVENTORY, defaultValue = "false", lang = "cfg.harvest.ToInventory")
+	@Comment("Put the drops of debris a player breaks straight into their inventory; only what does not fit is spawned")
+	public static boolean dropsToInventory = false;
+
 	public static void load(final Configuration config) {
 
 		ConfigProcessor.process(config, ModOptions.class);
@@ -128,6 +228,20 @@ public final class ModOptions {
 		config.setCategoryPropertyOrder(CATEGORY_GENERAL, new ArrayList<String>(generalSort));
 		config.setCategoryLanguageKey(CATEGORY_GENERAL, "cfg.general.cat.General");
 
+		// CATEGORY: Generation
+		config.setCategoryRequiresMcRestart(CATEGORY_GENERATION, false);
+		config.setCategoryRequiresWorldRestart(CATEGORY_GENERATION, false);
+		config.setCategoryComment(CATEGORY_GENERATION, "Options to control how debris is placed during world generation");
+		config.setCategoryPropertyOrder(CATEGORY_GENERATION, new ArrayList<String>(generationSort));
+		config.setCategoryLanguageKey(CATEGORY_GENERATION, "cfg.generation.cat.Generation");
+
+		// CATEGORY: Harvest
+		config.setCategoryRequiresMcRestart(CATEGORY_HARVEST, false);
+		config.setCategoryRequiresWorldRestart(CATEGORY_HARVEST, false);
+		config.setCategoryComment(CATEGORY_HARVEST, "Options to control what happens when debris is broken");
+		config.setCategoryPropertyOrder(CATEGORY_HARVEST, new ArrayList<String>(harvestSort));
+		config.setCategoryLanguageKey(CATEGORY_HARVEST, "cfg.harvest.cat.Harvest");
+
 		// CATEGORY: Logging
 		config.setCategoryRequiresMcRestart(CATEGORY_LOGGING_CONTROL, false);
 		config.setCategoryRequiresWorldRestart(CATEGORY_LOGGING_CONTROL, false);
@@ -0,0 +1,73 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraftforge.common.config.Configuration;
+import net.minecraftforge.fml.common.ModMetadata;
+
+/**
+ * Brings up enough of the game and mod state for the command line tools to
+ * work on save files without a server: the vanilla registries, the mod
+ * metadata and the mod configuration.
+ */
+public final class OfflineEnvironment {
+
+	private static boolean initialized = false;
+
+	private OfflineEnvironment() {
+	}
+
+	/**
+	 * Initializes the environment. configDirectory is the mod's data
+	 * directory, normally config/debris, and is where the configuration and
+	 * profile file are read from. Defaults are used for anything missing.
+	 */
+	public static synchronized void init(@Nonnull final File configDirectory) {
+		if (initialized)
+			return;
+
+		Bootstrap.register();
+
+		final ModMetadata data = new ModMetadata();
+		data.modId = "debris";
+		data.name = "Debris";
+		Debris.metadata = data;
+		Debris.dataDirectory = configDirectory;
+
+		final File file = new File(configDirectory, Debris.MOD_ID() + ".cfg");
+		if (file.exists()) {
+			Debris.config = new Configuration(file);
+			Debris.config.load();
+			ModOptions.load(Debris.config);
+		}
+
+		initialized = true;
+	}
+}
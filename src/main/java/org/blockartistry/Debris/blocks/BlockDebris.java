@@ -24,13 +24,14 @@
 
 package org.blockartistry.Debris.blocks;
 
-import java.util.List;
 import java.util.Random;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.blockartistry.Debris.Debris;
+import org.blockartistry.Debris.ModOptions;
+import org.blockartistry.Debris.data.LootTableHandle;
 import org.blockartistry.Debris.data.RubbleLootTable;
 
 import net.minecraft.block.Block;
@@ -38,7 +39,6 @@ import net.minecraft.block.material.Material;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.init.Blocks;
-import net.minecraft.item.ItemStack;
 import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ResourceLocation;
@@ -46,6 +46,7 @@ import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.minecraftforge.common.util.FakePlayer;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
@@ -55,14 +56,17 @@ public class BlockDebris extends BlockBase {
 	protected static final AxisAlignedBB DEBRIS_AABB = new AxisAlignedBB(0.0625F, 0.0F, 0.0625F, 0.9375F, 0.375F,
 			0.9375F);
 
+	private final LootTableHandle lootTable;
+
 	public BlockDebris(@Nonnull final Material material, @Nonnull final String name) {
 		super(material, name);
 
+		this.lootTable = new LootTableHandle(new ResourceLocation(Debris.RESOURCE_ID(), this.name));
 		registerLootTables();
 	}
 	
 	protected void registerLootTables() {
-		RubbleLootTable.register(new ResourceLocation(Debris.RESOURCE_ID(), this.name));
+		RubbleLootTable.register(this.lootTable.getResource());
 	}
 	
 	@Override
@@ -101,7 +105,7 @@ public class BlockDebris extends BlockBase {
 		return super.canPlaceBlockAt(world, pos) && this.canBlockStay(world, pos, null);
 	}
 
-	public boolean canBlockStay(@Nonnull final World world, @Nonnull final BlockPos pos,
+	public boolean canBlockStay(@Nonnull final IBlockAccess world, @Nonnull final BlockPos pos,
 			@Nullable final IBlockState state) {
 		if (pos.getY() > 1 && pos.getY() < 256) {
 			final IBlockState downState = world.getBlockState(pos.down());
@@ -152,8 +156,8 @@ public class BlockDebris extends BlockBase {
 	}
 	
 	@Nonnull
-	protected ResourceLocation getLootTable(@Nonnull final IBlockState state) {
-		return new ResourceLocation(Debris.RESOURCE_ID(), this.name);
+	protected LootTableHandle getLootTable(@Nonnull final IBlockState state) {
+		return this.lootTable;
 	}
 
 	@Override
@@ -162,9 +166,17 @@ public class BlockDebris extends BlockBase {
 		if (world.isRemote)
 			return;
 
-		final List<ItemStack> stacks = RubbleLootTable.getDrops(getLootTable(state), (World) world, player, RANDOM);
-		for (final ItemStack stack : stacks)
-			spawnAsEntity(world, pos, stack);
+		final HarvestDrops drops = HarvestDrops.get();
+		try {
+			RubbleLootTable.getDrops(getLootTable(state), world, player, RANDOM, drops);
+			// Machines breaking blocks with a fake player expect to find the
+			// drops in the world.
+			if (ModOptions.dropsToInventory && !(player instanceof FakePlayer))
+				drops.insert(player);
+			drops.spawn(world, pos);
+		} finally {
+			drops.clear();
+		}
 	}
 
 }
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.blockartistry.Debris.Debris;
+import org.blockartistry.Debris.data.LootTableHandle;
 import org.blockartistry.Debris.data.RubbleLootTable;
 import org.blockartistry.Debris.util.IVariant;
 
@@ -99,9 +100,10 @@ public class BlockDebrisVariant extends BlockDebris {
 		return Variant.byMetadata(meta);
 	}
 
+	@Override
 	@Nonnull
-	protected ResourceLocation getLootTable(@Nonnull final IBlockState state) {
-		return state.getValue(VARIANT).getLootTableResource();
+	protected LootTableHandle getLootTable(@Nonnull final IBlockState state) {
+		return state.getValue(VARIANT).getLootTable();
 	}
 
 	public static enum Variant implements IVariant {
@@ -114,6 +116,7 @@ public class BlockDebrisVariant extends BlockDebris {
 		private final String name;
 		private final MapColor mapColor;
 		private final ResourceLocation res;
+		private final LootTableHandle lootTable;
 		private final int weight;
 
 		private Variant(final int meta, @Nonnull final MapColor mapColor, @Nonnull final String name,
@@ -128,6 +131,7 @@ public class BlockDebrisVariant extends BlockDebris {
 			this.mapColor = mapColor;
 
 			this.res = new ResourceLocation(Debris.RESOURCE_ID(), lootTable);
+			this.lootTable = new LootTableHandle(this.res);
 			this.weight = weight;
 		}
 
@@ -141,6 +145,11 @@ public class BlockDebrisVariant extends BlockDebris {
 			return this.res;
 		}
 
+		@Nonnull
+		public LootTableHandle getLootTable() {
+			return this.lootTable;
+		}
+
 		public int getWeight() {
 			return this.weight;
 		}
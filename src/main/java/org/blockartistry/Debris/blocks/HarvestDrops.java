@@ -0,0 +1,245 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.blocks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.ModOptions;
+import org.blockartistry.Debris.data.IDropConsumer;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.SoundEvents;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Collects the drops of a broken debris block and spawns them as few
+ * EntityItems as it can. Drops of the same item, metadata and NBT are
+ * combined into full stacks first. With a merge radius set, stacks are then
+ * added to items that other debris spawned close by during the same server
+ * tick, which is when a lot of debris comes down at once from an explosion
+ * or a vein miner. The items spawned during a tick are kept in buckets of
+ * 8x8x8 blocks by where the item entity is, so finding them doesn't mean
+ * searching the world. Items from earlier ticks are left to vanilla, which
+ * merges items lying near each other on its own.
+ *
+ * When the drops go to the player's inventory only what does not fit is
+ * spawned, already combined into as few stacks as possible.
+ *
+ * One collector is kept per thread and reused for each harvest. The
+ * buckets are only touched from the server thread.
+ */
+@Mod.EventBusSubscriber
+public final class HarvestDrops implements IDropConsumer {
+
+	private static final int CELL_SHIFT = 3;
+
+	private static final ThreadLocal<HarvestDrops> collectors = new ThreadLocal<HarvestDrops>() {
+		@Override
+		protected HarvestDrops initialValue() {
+			return new HarvestDrops();
+		}
+	};
+
+	// Items spawned by debris this tick by cell
+	private static final TLongObjectHashMap<List<EntityItem>> buckets = new TLongObjectHashMap<List<EntityItem>>();
+
+	private final List<ItemStack> drops = new ArrayList<ItemStack>();
+
+	private HarvestDrops() {
+	}
+
+	@Nonnull
+	public static HarvestDrops get() {
+		return collectors.get();
+	}
+
+	@Override
+	public void accept(@Nonnull final ItemStack stack) {
+		if (stack.stackSize <= 0)
+			return;
+		// Overflow from the inventory is always combined
+		if (ModOptions.coalesceDrops || ModOptions.dropsToInventory) {
+			for (int i = 0; i < this.drops.size(); i++) {
+				if (merge(stack, this.drops.get(i)) && stack.stackSize == 0)
+					return;
+			}
+		}
+		this.drops.add(stack);
+	}
+
+	/**
+	 * Stacks collected so far.
+	 */
+	@Nonnull
+	public List<ItemStack> getDrops() {
+		return this.drops;
+	}
+
+	/**
+	 * Moves as much of what was collected as fits into the player's
+	 * inventory, leaving the rest in the collector. The inventory changes go
+	 * out to the client with the container's regular slot updates at the end
+	 * of the tick, and one pickup sound is played for the lot.
+	 */
+	public void insert(@Nonnull final EntityPlayer player) {
+		boolean inserted = false;
+		for (int i = this.drops.size() - 1; i >= 0; i--) {
+			final ItemStack stack = this.drops.get(i);
+			final int size = stack.stackSize;
+			player.inventory.addItemStackToInventory(stack);
+			if (stack.stackSize != size)
+				inserted = true;
+			if (stack.stackSize <= 0)
+				this.drops.remove(i);
+		}
+
+		if (inserted) {
+			final World world = player.worldObj;
+			world.playSound(null, player.posX, player.posY, player.posZ, SoundEvents.ENTITY_ITEM_PICKUP,
+					SoundCategory.PLAYERS, 0.2F,
+					((world.rand.nextFloat() - world.rand.nextFloat()) * 0.7F + 1.0F) * 2.0F);
+		}
+	}
+
+	/**
+	 * Spawns what was collected at the position and empties the collector.
+	 */
+	public void spawn(@Nonnull final World world, @Nonnull final BlockPos pos) {
+		final int radius = ModOptions.dropMergeRadius;
+		for (int i = 0; i < this.drops.size(); i++) {
+			if (radius > 0)
+				spawnMerged(world, pos, this.drops.get(i), radius);
+			else
+				Block.spawnAsEntity(world, pos, this.drops.get(i));
+		}
+		this.drops.clear();
+	}
+
+	public void clear() {
+		this.drops.clear();
+	}
+
+	/**
+	 * Moves as much of the stack into the target as the target has room for.
+	 * Returns true if the two stacks could be combined at all.
+	 */
+	private static boolean merge(@Nonnull final ItemStack stack, @Nonnull final ItemStack target) {
+		if (!ItemStack.areItemsEqual(stack, target) || !ItemStack.areItemStackTagsEqual(stack, target))
+			return false;
+		final int moved = Math.min(stack.stackSize, target.getMaxStackSize() - target.stackSize);
+		if (moved <= 0)
+			return false;
+		target.stackSize += moved;
+		stack.stackSize -= moved;
+		return true;
+	}
+
+	private static long cellKey(final int x, final int y, final int z) {
+		// Same packing as BlockPos.toLong
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (y & 0xFFF) << 26) | (z & 0x3FFFFFF);
+	}
+
+	/**
+	 * Key of the cell the entity is in right now.
+	 */
+	private static long cellKey(@Nonnull final EntityItem item) {
+		return cellKey(MathHelper.floor_double(item.posX) >> CELL_SHIFT,
+				MathHelper.floor_double(item.posY) >> CELL_SHIFT, MathHelper.floor_double(item.posZ) >> CELL_SHIFT);
+	}
+
+	private static void spawnMerged(@Nonnull final World world, @Nonnull final BlockPos pos,
+			@Nonnull final ItemStack stack, final int radius) {
+		// Same rules as Block.spawnAsEntity
+		if (world.isRemote || world.restoringBlockSnapshots || !world.getGameRules().getBoolean("doTileDrops"))
+			return;
+
+		final double x = pos.getX() + world.rand.nextFloat() * 0.5F + 0.25D;
+		final double y = pos.getY() + world.rand.nextFloat() * 0.5F + 0.25D;
+		final double z = pos.getZ() + world.rand.nextFloat() * 0.5F + 0.25D;
+		final double radiusSq = radius * radius;
+
+		final int minX = MathHelper.floor_double(x - radius) >> CELL_SHIFT;
+		final int minY = MathHelper.floor_double(y - radius) >> CELL_SHIFT;
+		final int minZ = MathHelper.floor_double(z - radius) >> CELL_SHIFT;
+		final int maxX = MathHelper.floor_double(x + radius) >> CELL_SHIFT;
+		final int maxY = MathHelper.floor_double(y + radius) >> CELL_SHIFT;
+		final int maxZ = MathHelper.floor_double(z + radius) >> CELL_SHIFT;
+
+		for (int cx = minX; cx <= maxX; cx++)
+			for (int cy = minY; cy <= maxY; cy++)
+				for (int cz = minZ; cz <= maxZ; cz++) {
+					final long key = cellKey(cx, cy, cz);
+					final List<EntityItem> bucket = buckets.get(key);
+					if (bucket == null)
+						continue;
+					for (int i = 0; i < bucket.size(); i++) {
+						final EntityItem item = bucket.get(i);
+						// Items may have moved since they were spawned; only
+						// ones still in their cell and within reach count.
+						if (item.worldObj != world || !item.isEntityAlive() || cellKey(item) != key
+								|| item.getDistanceSq(x, y, z) > radiusSq)
+							continue;
+						final ItemStack target = item.getEntityItem();
+						if (target != null && merge(stack, target)) {
+							// Marks the stack dirty so clients see the new size
+							item.setEntityItemStack(target);
+							if (stack.stackSize == 0)
+								return;
+						}
+					}
+				}
+
+		final EntityItem item = new EntityItem(world, x, y, z, stack);
+		item.setDefaultPickupDelay();
+		if (world.spawnEntityInWorld(item)) {
+			final long key = cellKey(item);
+			List<EntityItem> bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new ArrayList<EntityItem>(4);
+				buckets.put(key, bucket);
+			}
+			bucket.add(item);
+		}
+	}
+
+	@SubscribeEvent
+	public static void onServerTick(@Nonnull final TickEvent.ServerTickEvent event) {
+		if (event.phase == TickEvent.Phase.END && !buckets.isEmpty())
+			buckets.clear();
+	}
+}
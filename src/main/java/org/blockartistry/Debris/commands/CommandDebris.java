@@ -0,0 +1,152 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.commands;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModOptions;
+import org.blockartistry.Debris.util.Localization;
+import org.blockartistry.Debris.world.AdaptiveAttempts;
+import org.blockartistry.Debris.world.DebrisPurge;
+import org.blockartistry.Debris.world.DecorationStats;
+import org.blockartistry.Debris.world.Retrogen;
+
+import com.google.common.collect.ImmutableList;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.WorldServer;
+
+/**
+ * Server command for looking at what debris decoration is doing.
+ */
+public class CommandDebris extends CommandBase {
+
+	private static final String COMMAND = "debris";
+	private static final String STATS = "stats";
+	private static final String ADAPTIVE = "adaptive";
+	private static final String PURGE = "purge";
+	private static final String REGEN = "regen";
+	private static final String REGION = "region";
+
+	private static final int MAX_RADIUS = 64;
+
+	private static final String[] SUBCOMMANDS = { STATS, ADAPTIVE, PURGE, REGEN };
+
+	@Override
+	@Nonnull
+	public String getCommandName() {
+		return COMMAND;
+	}
+
+	@Override
+	@Nonnull
+	public String getCommandUsage(@Nonnull final ICommandSender sender) {
+		return Localization.format("msg.Command.Usage.debris");
+	}
+
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+
+	private static void send(@Nonnull final ICommandSender sender, @Nonnull final String key,
+			@Nullable final Object... parms) {
+		sender.addChatMessage(new TextComponentString(Localization.format(key, parms)));
+	}
+
+	@Override
+	public void execute(@Nonnull final MinecraftServer server, @Nonnull final ICommandSender sender,
+			@Nonnull final String[] args) throws CommandException {
+		if (args.length < 1)
+			throw new WrongUsageException(getCommandUsage(sender));
+
+		if (STATS.equals(args[0])) {
+			send(sender, "msg.Command.Stats.debris", DecorationStats.chunksDecorated.get(),
+					DecorationStats.chunksSkipped.get(), DecorationStats.placed.get());
+			send(sender, "msg.Command.StatsWindow.debris", DecorationStats.outsideWindow.get(),
+					DecorationStats.wouldCascade.get(), DecorationStats.planDropped.get());
+			if (ModOptions.retrogen)
+				send(sender, "msg.Command.Retrogen.debris", DecorationStats.retrogenChunks.get(),
+						Retrogen.getQueued());
+		} else if (ADAPTIVE.equals(args[0])) {
+			if (!AdaptiveAttempts.isEnabled())
+				send(sender, "msg.Command.AdaptiveOff.debris");
+			final List<AdaptiveAttempts.State> states = AdaptiveAttempts.snapshot();
+			if (states.isEmpty())
+				send(sender, "msg.Command.AdaptiveEmpty.debris");
+			for (final AdaptiveAttempts.State state : states)
+				send(sender, "msg.Command.Adaptive.debris", state.dimension,
+						String.format("%.1f", state.successRate * 100.0D), state.lastAttempts, state.chunks);
+		} else if (PURGE.equals(args[0]) || REGEN.equals(args[0])) {
+			startPurge(sender, args, REGEN.equals(args[0]));
+		} else {
+			throw new WrongUsageException(getCommandUsage(sender));
+		}
+	}
+
+	private void startPurge(@Nonnull final ICommandSender sender, @Nonnull final String[] args, final boolean regen)
+			throws CommandException {
+		final WorldServer world = (WorldServer) sender.getEntityWorld();
+		final DebrisPurge.Area area = new DebrisPurge.Area();
+		if (args.length >= 4 && (args.length & 1) == 0 && REGION.equals(args[1])) {
+			// One or more region file coordinates
+			for (int i = 2; i < args.length; i += 2) {
+				final int minX = parseInt(args[i]) << 5;
+				final int minZ = parseInt(args[i + 1]) << 5;
+				area.add(minX, minZ, minX + 31, minZ + 31);
+			}
+		} else if (args.length == 2) {
+			final int radius = parseInt(args[1], 0, MAX_RADIUS);
+			final BlockPos pos = sender.getPosition();
+			area.add((pos.getX() >> 4) - radius, (pos.getZ() >> 4) - radius, (pos.getX() >> 4) + radius,
+					(pos.getZ() >> 4) + radius);
+		} else {
+			throw new WrongUsageException(getCommandUsage(sender));
+		}
+
+		final int count = DebrisPurge.start(world, sender, area, regen);
+		send(sender, "msg.Command.PurgeStarted.debris", args[0], count);
+	}
+
+	@Override
+	@Nonnull
+	public List<String> getTabCompletionOptions(@Nonnull final MinecraftServer server,
+			@Nonnull final ICommandSender sender, @Nonnull final String[] args, @Nullable final BlockPos pos) {
+		if (args.length == 1)
+			return getListOfStringsMatchingLastWord(args, SUBCOMMANDS);
+		if (args.length == 2 && (PURGE.equals(args[0]) || REGEN.equals(args[0])))
+			return getListOfStringsMatchingLastWord(args, REGION);
+		return ImmutableList.of();
+	}
+}
@@ -0,0 +1,361 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.data;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.util.AliasTable;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.storage.loot.LootContext;
+import net.minecraft.world.storage.loot.LootEntry;
+import net.minecraft.world.storage.loot.LootEntryEmpty;
+import net.minecraft.world.storage.loot.LootEntryItem;
+import net.minecraft.world.storage.loot.LootPool;
+import net.minecraft.world.storage.loot.LootTable;
+import net.minecraft.world.storage.loot.RandomValueRange;
+import net.minecraft.world.storage.loot.conditions.LootCondition;
+import net.minecraft.world.storage.loot.functions.LootFunction;
+import net.minecraft.world.storage.loot.functions.SetCount;
+import net.minecraft.world.storage.loot.functions.SetDamage;
+import net.minecraft.world.storage.loot.functions.SetMetadata;
+import net.minecraft.world.storage.loot.functions.SetNBT;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+/**
+ * Flattened form of a LootTable that generates the same distribution of
+ * drops without a LootContext or any of the intermediate lists vanilla
+ * builds on each roll. Each pool becomes an alias table over the effective
+ * entry weights, built once per luck value, and each item entry becomes a
+ * prototype ItemStack plus the functions to apply to a copy of it.
+ *
+ * Only SetCount, SetMetadata, SetDamage and SetNBT are applied directly;
+ * they depend on nothing but the random. Entries with any other function,
+ * or entries that are not plain items, are handed to vanilla. Pools with
+ * conditions on the pool or on any entry are left to vanilla entirely since
+ * their weights can change from one roll to the next. Vanilla is given a
+ * LootContext from the IContextSource, which is only asked for one when it
+ * is needed.
+ *
+ * Compiled tables are cached by table instance, weakly, so a reload of the
+ * loot tables compiles them again.
+ */
+public final class CompiledLootTable {
+
+	/**
+	 * Supplies the LootContext for the parts that fall back to vanilla.
+	 */
+	public interface IContextSource {
+		@Nonnull
+		LootContext get();
+	}
+
+	// Distinct nonzero luck values kept per pool; other values are not cached
+	private static final int MAX_LUCK_TABLES = 16;
+
+	private static final Field POOLS;
+	private static final Field ENTRIES;
+	private static final Field POOL_CONDITIONS;
+	private static final Field ENTRY_CONDITIONS;
+	private static final Field ITEM;
+	private static final Field FUNCTIONS;
+
+	static {
+		Field pools = null;
+		Field entries = null;
+		Field poolConditions = null;
+		Field entryConditions = null;
+		Field item = null;
+		Field functions = null;
+		try {
+			pools = ReflectionHelper.findField(LootTable.class, "pools", "field_186466_c");
+			entries = ReflectionHelper.findField(LootPool.class, "lootEntries", "field_186453_a");
+			poolConditions = ReflectionHelper.findField(LootPool.class, "poolConditions", "field_186454_b");
+			entryConditions = ReflectionHelper.findField(LootEntry.class, "conditions", "field_186366_e");
+			item = ReflectionHelper.findField(LootEntryItem.class, "item", "field_186368_a");
+			functions = ReflectionHelper.findField(LootEntryItem.class, "functions", "field_186369_b");
+		} catch (@Nonnull final Throwable t) {
+			ModLog.error("Unable to access loot table internals; loot tables will not be compiled", t);
+			pools = null;
+		}
+		POOLS = pools;
+		ENTRIES = entries;
+		POOL_CONDITIONS = poolConditions;
+		ENTRY_CONDITIONS = entryConditions;
+		ITEM = item;
+		FUNCTIONS = functions;
+	}
+
+	// Collects the drops vanilla generates so they can be passed on
+	private static final ThreadLocal<List<ItemStack>> vanillaBuffer = new ThreadLocal<List<ItemStack>>() {
+		@Override
+		protected List<ItemStack> initialValue() {
+			return new ArrayList<ItemStack>();
+		}
+	};
+
+	private static final Map<LootTable, CompiledLootTable> cache = new WeakHashMap<LootTable, CompiledLootTable>();
+
+	/**
+	 * An entry of a compiled pool.
+	 */
+	private static final class Entry {
+		public final LootEntry source;
+		// Null when the entry goes through vanilla
+		public final ItemStack prototype;
+		public final LootFunction[] functions;
+		public final boolean empty;
+
+		public Entry(@Nonnull final LootEntry source, @Nullable final ItemStack prototype,
+				@Nullable final LootFunction[] functions) {
+			this.source = source;
+			this.prototype = prototype;
+			this.functions = functions;
+			this.empty = source instanceof LootEntryEmpty;
+		}
+	}
+
+	private static final class Pool {
+		public final RandomValueRange rolls;
+		public final RandomValueRange bonusRolls;
+		// Set when the whole pool goes through vanilla
+		public final LootPool vanilla;
+		public final Entry[] entries;
+		// Luck is almost always 0 so that table is built up front and read
+		// without going through the map
+		private final AliasTable baseTable;
+		private final Map<Float, AliasTable> tables = new HashMap<Float, AliasTable>();
+
+		public Pool(@Nonnull final LootPool pool, @Nullable final Entry[] entries) {
+			this.rolls = pool.getRolls();
+			this.bonusRolls = pool.getBonusRolls();
+			this.vanilla = entries == null ? pool : null;
+			this.entries = entries;
+			this.baseTable = entries == null ? null : build(0F);
+		}
+
+		/**
+		 * Alias table over the effective weights at the luck, or null if
+		 * none of the entries can be picked.
+		 */
+		@Nullable
+		public AliasTable getTable(final float luck) {
+			if (luck == 0F)
+				return this.baseTable;
+
+			final Float key = luck;
+			synchronized (this.tables) {
+				if (this.tables.containsKey(key))
+					return this.tables.get(key);
+			}
+
+			final AliasTable table = build(luck);
+			synchronized (this.tables) {
+				if (this.tables.size() < MAX_LUCK_TABLES)
+					this.tables.put(key, table);
+			}
+			return table;
+		}
+
+		@Nullable
+		private AliasTable build(final float luck) {
+			final int[] weights = new int[this.entries.length];
+			long total = 0;
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = this.entries[i].source.getEffectiveWeight(luck);
+				total += weights[i];
+			}
+			return total > 0 && total <= Integer.MAX_VALUE ? new AliasTable(weights) : null;
+		}
+	}
+
+	private final Pool[] pools;
+
+	private CompiledLootTable(@Nonnull final Pool[] pools) {
+		this.pools = pools;
+	}
+
+	/**
+	 * Returns the compiled form of the table, compiling it the first time.
+	 * Returns null if the table cannot be compiled and has to be run by
+	 * vanilla.
+	 */
+	@Nullable
+	public static CompiledLootTable get(@Nonnull final LootTable table) {
+		if (POOLS == null)
+			return null;
+
+		synchronized (cache) {
+			if (cache.containsKey(table))
+				return cache.get(table);
+		}
+
+		CompiledLootTable compiled = null;
+		try {
+			compiled = compile(table);
+		} catch (@Nonnull final Throwable t) {
+			ModLog.error("Unable to compile loot table", t);
+		}
+
+		synchronized (cache) {
+			cache.put(table, compiled);
+		}
+		return compiled;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nonnull
+	private static CompiledLootTable compile(@Nonnull final LootTable table) throws IllegalAccessException {
+		final List<LootPool> source = (List<LootPool>) POOLS.get(table);
+		final Pool[] pools = new Pool[source.size()];
+		for (int i = 0; i < pools.length; i++) {
+			final LootPool pool = source.get(i);
+			pools[i] = new Pool(pool, compile(pool));
+		}
+		return new CompiledLootTable(pools);
+	}
+
+	/**
+	 * Compiles the entries of a pool. Returns null if the pool has to be run
+	 * by vanilla.
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private static Entry[] compile(@Nonnull final LootPool pool) throws IllegalAccessException {
+		if (((List<LootCondition>) POOL_CONDITIONS.get(pool)).size() > 0)
+			return null;
+
+		final List<LootEntry> source = (List<LootEntry>) ENTRIES.get(pool);
+		final Entry[] entries = new Entry[source.size()];
+		for (int i = 0; i < entries.length; i++) {
+			final LootEntry entry = source.get(i);
+			final LootCondition[] conditions = (LootCondition[]) ENTRY_CONDITIONS.get(entry);
+			if (conditions != null && conditions.length > 0)
+				return null;
+
+			ItemStack prototype = null;
+			LootFunction[] functions = null;
+			if (entry instanceof LootEntryItem) {
+				functions = (LootFunction[]) FUNCTIONS.get(entry);
+				if (isCompilable(functions))
+					prototype = new ItemStack((Item) ITEM.get(entry));
+				else
+					functions = null;
+			}
+			entries[i] = new Entry(entry, prototype, functions);
+		}
+		return entries;
+	}
+
+	private static boolean isCompilable(@Nonnull final LootFunction[] functions) {
+		for (final LootFunction f : functions) {
+			final LootCondition[] conditions = f.getConditions();
+			if (conditions != null && conditions.length > 0)
+				return false;
+			final Class<?> type = f.getClass();
+			if (type != SetCount.class && type != SetMetadata.class && type != SetDamage.class
+					&& type != SetNBT.class)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Generates drops the same way LootTable.generateLootForPools() would
+	 * and hands them to the consumer in the same order.
+	 */
+	public void generate(@Nonnull final IDropConsumer consumer, @Nonnull final Random rand, final float luck,
+			@Nonnull final IContextSource context) {
+		for (final Pool pool : this.pools) {
+			if (pool.vanilla != null) {
+				final List<ItemStack> buffer = vanillaBuffer.get();
+				pool.vanilla.generateLoot(buffer, rand, context.get());
+				drain(buffer, consumer);
+				continue;
+			}
+
+			final int rolls = pool.rolls.generateInt(rand)
+					+ MathHelper.floor_float(pool.bonusRolls.generateFloat(rand) * luck);
+			if (rolls < 1)
+				continue;
+
+			final AliasTable table = pool.getTable(luck);
+			if (table == null)
+				continue;
+
+			for (int i = 0; i < rolls; i++) {
+				final Entry entry = pool.entries[table.next(rand)];
+				if (entry.prototype != null) {
+					addLoot(consumer, rand, entry);
+				} else if (!entry.empty) {
+					final List<ItemStack> buffer = vanillaBuffer.get();
+					entry.source.addLoot(buffer, rand, context.get());
+					drain(buffer, consumer);
+				}
+			}
+		}
+	}
+
+	private static void drain(@Nonnull final List<ItemStack> buffer, @Nonnull final IDropConsumer consumer) {
+		for (int i = 0; i < buffer.size(); i++)
+			consumer.accept(buffer.get(i));
+		buffer.clear();
+	}
+
+	private static void addLoot(@Nonnull final IDropConsumer consumer, @Nonnull final Random rand,
+			@Nonnull final Entry entry) {
+		ItemStack stack = entry.prototype.copy();
+		// The compiled functions do not look at the context
+		for (final LootFunction f : entry.functions)
+			stack = f.apply(stack, rand, null);
+
+		// Same splitting as LootEntryItem
+		if (stack.stackSize <= 0)
+			return;
+		if (stack.stackSize < stack.getMaxStackSize()) {
+			consumer.accept(stack);
+		} else {
+			int remaining = stack.stackSize;
+			while (remaining > 0) {
+				final ItemStack split = stack.copy();
+				split.stackSize = Math.min(stack.getMaxStackSize(), remaining);
+				remaining -= split.stackSize;
+				consumer.accept(split);
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.loot.LootTable;
+import net.minecraft.world.storage.loot.LootTableManager;
+
+/**
+ * Loot table of a debris block resolved once and kept, along with its
+ * compiled form. A harvest then only compares the LootTableManager of the
+ * world with the one the table came from instead of going through the
+ * manager's cache by name.
+ *
+ * A handle resolves again when it sees a different manager, which is how a
+ * new server or world picks up its own tables. The manager caches tables
+ * lazily, so a LootTableLoadEvent alone does not say when a cached table is
+ * replaced. It does here only because RubbleLootTable registers the debris
+ * tables with LootTableList: LootTableManager.reloadLootTables() empties its
+ * cache and then loads every registered table straight away, so the event
+ * fires for each debris table during a reload and RubbleLootTable drops the
+ * handles then. A table that was not registered would be loaded on the next
+ * lookup instead and a handle could keep the old one. The handles are also
+ * dropped when the server stops so a stopped world is not kept around.
+ *
+ * Handles are only used from the server thread.
+ */
+public final class LootTableHandle {
+
+	private static final List<LootTableHandle> handles = new ArrayList<LootTableHandle>();
+
+	private final ResourceLocation resource;
+
+	private LootTableManager manager;
+	private LootTable table;
+	private CompiledLootTable compiled;
+
+	public LootTableHandle(@Nonnull final ResourceLocation resource) {
+		this.resource = resource;
+		synchronized (handles) {
+			handles.add(this);
+		}
+	}
+
+	@Nonnull
+	public ResourceLocation getResource() {
+		return this.resource;
+	}
+
+	/**
+	 * Resolves the table in the world's LootTableManager if it is not
+	 * already. Returns false if the manager does not have the table.
+	 */
+	public boolean resolve(@Nonnull final World world) {
+		final LootTableManager current = world.getLootTableManager();
+		if (this.manager != current) {
+			this.table = current.getLootTableFromLocation(this.resource);
+			this.compiled = this.table != null ? CompiledLootTable.get(this.table) : null;
+			this.manager = current;
+		}
+		return this.table != null;
+	}
+
+	/**
+	 * Table found by the last resolve.
+	 */
+	@Nullable
+	public LootTable getTable() {
+		return this.table;
+	}
+
+	/**
+	 * Compiled form of the table found by the last resolve, or null if it has
+	 * to be run by vanilla.
+	 */
+	@Nullable
+	public CompiledLootTable getCompiled() {
+		return this.compiled;
+	}
+
+	private void invalidate() {
+		this.manager = null;
+		this.table = null;
+		this.compiled = null;
+	}
+
+	/**
+	 * Forgets what every handle resolved to.
+	 */
+	public static void invalidateAll() {
+		synchronized (handles) {
+			for (final LootTableHandle handle : handles)
+				handle.invalidate();
+		}
+	}
+}
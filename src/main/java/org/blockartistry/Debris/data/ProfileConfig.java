@@ -0,0 +1,120 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModLog;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Json layout of the debris profile file. Every setting is optional; a
+ * setting that is left out is inherited from the enclosing level, which is
+ * biome from dimension, dimension from defaults, and defaults from the mod
+ * configuration. Example:
+ *
+ * <pre>
+ * {
+ *   "defaults": { "density": 80 },
+ *   "dimensions": [
+ *     { "dimension": 0, "minY": 8,
+ *       "variants": { "bone_pile": 20 },
+ *       "biomes": [ { "biome": "minecraft:desert", "density": 120 } ] },
+ *     { "dimension": 1, "enabled": false }
+ *   ]
+ * }
+ * </pre>
+ *
+ * maxY is a fixed level; when not set it is the ground level of the
+ * dimension less a small adjustment.
+ *
+ * variants sets the weights at every depth. bands then changes them for a
+ * depth range, in 16 block steps, so deeper caves can favor different
+ * debris:
+ *
+ * <pre>
+ * "bands": [ { "minY": 0, "maxY": 31, "variants": { "bone_pile": 40 } } ]
+ * </pre>
+ */
+public class ProfileConfig {
+
+	public static class Settings {
+		public Boolean enabled;
+		public Float density;
+		public Integer minY;
+		public Integer maxY;
+		public Map<String, Integer> variants;
+		public List<Band> bands;
+	}
+
+	public static class Band {
+		public int minY;
+		public int maxY = 255;
+		public Map<String, Integer> variants;
+	}
+
+	public static class Dimension extends Settings {
+		public int dimension;
+		public List<Biome> biomes = new ArrayList<Biome>();
+	}
+
+	public static class Biome extends Settings {
+		public String biome;
+	}
+
+	public Settings defaults;
+	public List<Dimension> dimensions = new ArrayList<Dimension>();
+
+	/**
+	 * Reads the profile file. Returns null if the file does not exist or
+	 * cannot be parsed.
+	 */
+	@Nullable
+	public static ProfileConfig load(@Nonnull final File file) {
+		if (!file.exists())
+			return null;
+
+		try {
+			final String json = Files.toString(file, Charsets.UTF_8);
+			return new Gson().fromJson(json, ProfileConfig.class);
+		} catch (@Nonnull final IOException e) {
+			ModLog.error("Couldn\'t read debris profiles from " + file, e);
+		} catch (@Nonnull final JsonParseException e) {
+			ModLog.error("Couldn\'t parse debris profiles from " + file, e);
+		}
+		return null;
+	}
+}
@@ -25,6 +25,7 @@
 package org.blockartistry.Debris.data;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
@@ -37,7 +38,6 @@ import org.blockartistry.Debris.Debris;
 import org.blockartistry.Debris.ModEnvironment;
 import org.blockartistry.Debris.ModLog;
 import org.blockartistry.Debris.ModOptions;
-import com.google.common.collect.ImmutableList;
 
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
@@ -63,23 +63,98 @@ public class RubbleLootTable {
 
 	public static void register(@Nonnull final ResourceLocation resource) {
 		TABLES.add(resource);
+		// Also what makes a reload fire LootTableLoadEvent for it, which
+		// LootTableHandle depends on
 		LootTableList.register(resource);
 	}
 
+	/**
+	 * Builds the LootContext for a harvest the first time it is asked for.
+	 * One is kept per thread and pointed at each harvest in turn, so the
+	 * compiled path does not allocate one at all.
+	 */
+	private static final class ContextSource implements CompiledLootTable.IContextSource {
+
+		private World world;
+		private EntityPlayer player;
+		private LootContext context;
+
+		public void set(@Nullable final World world, @Nullable final EntityPlayer player) {
+			this.world = world;
+			this.player = player;
+			this.context = null;
+		}
+
+		@Override
+		@Nonnull
+		public LootContext get() {
+			if (this.context == null) {
+				final LootContext.Builder builder = new LootContext.Builder((WorldServer) this.world);
+				if (this.player != null) {
+					builder.withPlayer(this.player);
+					if (ModOptions.useLuck)
+						builder.withLuck(this.player.getLuck());
+				}
+				this.context = builder.build();
+			}
+			return this.context;
+		}
+	}
+
+	private static final ThreadLocal<ContextSource> contexts = new ThreadLocal<ContextSource>() {
+		@Override
+		protected ContextSource initialValue() {
+			return new ContextSource();
+		}
+	};
+
+	/**
+	 * Generates the drops of the loot table for a harvest and hands each one
+	 * to the consumer as it is generated.
+	 */
+	public static void getDrops(@Nonnull final LootTableHandle lootTable, @Nonnull final World world,
+			@Nullable final EntityPlayer player, @Nonnull final Random rand, @Nonnull final IDropConsumer consumer) {
+		if (lootTable.resolve(world))
+			generate(lootTable.getTable(), lootTable.getCompiled(), world, player, rand, consumer);
+	}
+
+	public static void getDrops(@Nonnull final ResourceLocation lootTable, @Nonnull final World world,
+			@Nullable final EntityPlayer player, @Nonnull final Random rand, @Nonnull final IDropConsumer consumer) {
+		final LootTable table = world.getLootTableManager().getLootTableFromLocation(lootTable);
+		if (table != null)
+			generate(table, CompiledLootTable.get(table), world, player, rand, consumer);
+	}
+
+	private static void generate(@Nonnull final LootTable table, @Nullable final CompiledLootTable compiled,
+			@Nonnull final World world, @Nullable final EntityPlayer player, @Nonnull final Random rand,
+			@Nonnull final IDropConsumer consumer) {
+		final ContextSource context = contexts.get();
+		context.set(world, player);
+		try {
+			if (compiled != null) {
+				final float luck = player != null && ModOptions.useLuck ? player.getLuck() : 0F;
+				compiled.generate(consumer, rand, luck, context);
+			} else {
+				for (final ItemStack stack : table.generateLootForPools(rand, context.get()))
+					consumer.accept(stack);
+			}
+		} finally {
+			// Don't hold on to the world or player between harvests
+			context.set(null, null);
+		}
+	}
+
 	@Nonnull
 	public static List<ItemStack> getDrops(@Nonnull final ResourceLocation lootTable, @Nonnull final World world,
 			@Nullable final EntityPlayer player, @Nonnull final Random rand) {
-		final LootTable table = world.getLootTableManager().getLootTableFromLocation(lootTable);
-		if (table != null) {
-			final LootContext.Builder builder = new LootContext.Builder((WorldServer) world);
-			if (player != null) {
-				builder.withPlayer(player);
-				if (ModOptions.useLuck)
-					builder.withLuck(player.getLuck());
+		final List<ItemStack> drops = new ArrayList<ItemStack>();
+		getDrops(lootTable, world, player, rand, new IDropConsumer() {
+			@Override
+			public void accept(@Nonnull final ItemStack stack) {
+				drops.add(stack);
 			}
-			return table.generateLootForPools(rand, builder.build());
-		}
-		return ImmutableList.of();
+		});
+		return drops;
 	}
 
 	private static void process(@Nonnull final LootTable table, @Nonnull final LootTable source,
@@ -125,6 +200,11 @@ public class RubbleLootTable {
 		if (!TABLES.contains(event.getName()))
 			return;
 
+		// Tables are being (re)loaded so resolved handles are stale. The
+		// debris tables are registered with LootTableList, so a reload of
+		// the manager loads them right away and this fires for each.
+		LootTableHandle.invalidateAll();
+
 		final String poolName = event.getName().getResourcePath();
 		final LootPool pool = event.getTable().getPool(poolName);
 
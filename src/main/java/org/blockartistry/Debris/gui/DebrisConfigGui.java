@@ -52,6 +52,8 @@ public class DebrisConfigGui extends GuiConfig {
 		this.titleLine2 = this.config.getConfigFile().getAbsolutePath();
 
 		addConfigCategory(ModOptions.CATEGORY_GENERAL);
+		addConfigCategory(ModOptions.CATEGORY_GENERATION);
+		addConfigCategory(ModOptions.CATEGORY_HARVEST);
 		addConfigCategory(ModOptions.CATEGORY_LOGGING_CONTROL);
 	}
 
@@ -26,10 +26,16 @@ package org.blockartistry.Debris.proxy;
 
 import javax.annotation.Nonnull;
 
+import org.blockartistry.Debris.commands.CommandDebris;
+import org.blockartistry.Debris.data.LootTableHandle;
 import org.blockartistry.Debris.items.ModItems;
 import org.blockartistry.Debris.util.Localization;
 import org.blockartistry.Debris.waila.WailaHandler;
+import org.blockartistry.Debris.world.AdaptiveAttempts;
 import org.blockartistry.Debris.world.DebrisBiomeDecorator;
+import org.blockartistry.Debris.world.DebrisProfiles;
+import org.blockartistry.Debris.world.DebrisPurge;
+import org.blockartistry.Debris.world.DecorationStats;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLLoadCompleteEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
@@ -79,19 +85,22 @@ public class Proxy {
 	}
 
 	public void serverAboutToStart(@Nonnull final FMLServerAboutToStartEvent event) {
-
+		DecorationStats.reset();
+		AdaptiveAttempts.reset();
+		DebrisPurge.reset();
+		DebrisProfiles.load();
 	}
 
 	public void serverStarting(@Nonnull final FMLServerStartingEvent event) {
-
+		event.registerServerCommand(new CommandDebris());
 	}
 	
 	public void serverStopping(@Nonnull final FMLServerStoppingEvent event) {
-
+		DecorationStats.log();
 	}
 	
 	public void serverStopped(@Nonnull final FMLServerStoppedEvent event) {
-
+		LootTableHandle.invalidateAll();
 	}
 	
 }
@@ -0,0 +1,220 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.tools;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.world.DebrisJournal;
+import org.blockartistry.Debris.world.Retrogen;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * A chunk read from a region file with its block sections decoded into the
+ * raw Anvil arrays: an 8 bit block id, optional 4 high id bits in Add, and 4
+ * bits of metadata in Data, indexed by (y << 8) | (z << 4) | x. Only the
+ * block arrays are touched; everything else in the NBT is written back as
+ * it was read.
+ */
+public final class ChunkData {
+
+	private static final int SECTION_VOLUME = 4096;
+
+	private static final class Section {
+		public final NBTTagCompound nbt;
+		public final byte[] blocks;
+		public byte[] add;
+		public final byte[] data;
+
+		public Section(@Nonnull final NBTTagCompound nbt) {
+			this.nbt = nbt;
+			this.blocks = nbt.getByteArray("Blocks");
+			this.add = nbt.hasKey("Add", Constants.NBT.TAG_BYTE_ARRAY) ? nbt.getByteArray("Add") : null;
+			this.data = nbt.getByteArray("Data");
+		}
+	}
+
+	private final NBTTagCompound root;
+	private final NBTTagCompound level;
+	private final Section[] sections = new Section[16];
+	private boolean modified;
+
+	// Journal entries added since the chunk was read, written into the NBT
+	// once on save
+	private DebrisJournal.Entries journal;
+
+	public ChunkData(@Nonnull final NBTTagCompound root) {
+		this.root = root;
+		this.level = root.getCompoundTag("Level");
+		final NBTTagList list = this.level.getTagList("Sections", Constants.NBT.TAG_COMPOUND);
+		for (int i = 0; i < list.tagCount(); i++) {
+			final NBTTagCompound nbt = list.getCompoundTagAt(i);
+			final int y = nbt.getByte("Y");
+			if (y >= 0 && y < 16 && nbt.getByteArray("Blocks").length == SECTION_VOLUME)
+				this.sections[y] = new Section(nbt);
+		}
+	}
+
+	/**
+	 * The chunk NBT to write back to the region file, with the journal
+	 * entries added since it was read.
+	 */
+	@Nonnull
+	public NBTTagCompound save() {
+		if (this.journal != null) {
+			final NBTTagCompound nbt = this.root.getCompoundTag(Retrogen.NBT_DEBRIS);
+			DebrisJournal.write(nbt, this.journal);
+			this.root.setTag(Retrogen.NBT_DEBRIS, nbt);
+		}
+		return this.root;
+	}
+
+	public boolean isModified() {
+		return this.modified;
+	}
+
+	public boolean isTerrainPopulated() {
+		return this.level.getBoolean("TerrainPopulated");
+	}
+
+	/**
+	 * Indicates debris has already been placed in the chunk, either during
+	 * generation or by retrogen.
+	 */
+	public boolean isDebrisGenerated() {
+		return this.root.getCompoundTag(Retrogen.NBT_DEBRIS).getBoolean(Retrogen.NBT_GENERATED);
+	}
+
+	public void setDebrisGenerated() {
+		final NBTTagCompound nbt = this.root.getCompoundTag(Retrogen.NBT_DEBRIS);
+		nbt.setBoolean(Retrogen.NBT_GENERATED, true);
+		this.root.setTag(Retrogen.NBT_DEBRIS, nbt);
+		this.modified = true;
+	}
+
+	/**
+	 * Adds an entry for debris placed at local x and z to the chunk's
+	 * DebrisJournal.
+	 */
+	public void addJournalEntry(final int x, final int y, final int z, final int meta) {
+		if (this.journal == null) {
+			this.journal = DebrisJournal.read(this.root.getCompoundTag(Retrogen.NBT_DEBRIS));
+			if (this.journal == null)
+				this.journal = new DebrisJournal.Entries();
+		}
+		this.journal.add(DebrisJournal.pack(x, y, z), meta);
+		this.modified = true;
+	}
+
+	/**
+	 * Biome id at local x and z.
+	 */
+	public int getBiome(final int x, final int z) {
+		final byte[] biomes = this.level.getByteArray("Biomes");
+		return biomes.length == 256 ? biomes[(z << 4) | x] & 0xFF : 0;
+	}
+
+	public boolean isSectionEmpty(final int y) {
+		return this.sections[y >> 4] == null;
+	}
+
+	/**
+	 * Block at local x and z, as (id << 4) | meta. Missing sections read as
+	 * air.
+	 */
+	public int get(final int x, final int y, final int z) {
+		final Section section = this.sections[y >> 4];
+		if (section == null)
+			return 0;
+		final int idx = ((y & 15) << 8) | (z << 4) | x;
+		int id = section.blocks[idx] & 0xFF;
+		if (section.add != null)
+			id |= nibble(section.add, idx) << 8;
+		return (id << 4) | nibble(section.data, idx);
+	}
+
+	/**
+	 * Sets the block at local x and z. A missing section is created empty
+	 * and unlit.
+	 */
+	public void set(final int x, final int y, final int z, final int id, final int meta) {
+		Section section = this.sections[y >> 4];
+		if (section == null) {
+			section = createSection(y >> 4);
+			this.sections[y >> 4] = section;
+		}
+
+		final int idx = ((y & 15) << 8) | (z << 4) | x;
+		section.blocks[idx] = (byte) id;
+		if (id > 255 || section.add != null) {
+			if (section.add == null) {
+				section.add = new byte[SECTION_VOLUME / 2];
+				section.nbt.setByteArray("Add", section.add);
+			}
+			setNibble(section.add, idx, id >> 8);
+		}
+		setNibble(section.data, idx, meta);
+		this.modified = true;
+	}
+
+	@Nonnull
+	private Section createSection(final int y) {
+		final NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setByte("Y", (byte) y);
+		nbt.setByteArray("Blocks", new byte[SECTION_VOLUME]);
+		nbt.setByteArray("Data", new byte[SECTION_VOLUME / 2]);
+		nbt.setByteArray("BlockLight", new byte[SECTION_VOLUME / 2]);
+		if (hasSkyLight())
+			nbt.setByteArray("SkyLight", new byte[SECTION_VOLUME / 2]);
+
+		final NBTTagList list = this.level.getTagList("Sections", Constants.NBT.TAG_COMPOUND);
+		list.appendTag(nbt);
+		this.level.setTag("Sections", list);
+
+		// The game works out the light for the new section when the chunk
+		// is next loaded.
+		this.level.setBoolean("LightPopulated", false);
+		return new Section(nbt);
+	}
+
+	private boolean hasSkyLight() {
+		final NBTTagList list = this.level.getTagList("Sections", Constants.NBT.TAG_COMPOUND);
+		return list.tagCount() == 0 || list.getCompoundTagAt(0).hasKey("SkyLight", Constants.NBT.TAG_BYTE_ARRAY);
+	}
+
+	private static int nibble(@Nonnull final byte[] array, final int idx) {
+		return (array[idx >> 1] >> ((idx & 1) << 2)) & 15;
+	}
+
+	private static void setNibble(@Nonnull final byte[] array, final int idx, final int value) {
+		final int i = idx >> 1;
+		if ((idx & 1) == 0)
+			array[i] = (byte) ((array[i] & 0xF0) | (value & 15));
+		else
+			array[i] = (byte) ((array[i] & 0x0F) | ((value & 15) << 4));
+	}
+}
@@ -0,0 +1,365 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.tools;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.ModOptions;
+import org.blockartistry.Debris.OfflineEnvironment;
+import org.blockartistry.Debris.world.DebrisBiomeDecorator;
+import org.blockartistry.Debris.world.DebrisPlanner;
+import org.blockartistry.Debris.world.DebrisProfile;
+import org.blockartistry.Debris.world.DebrisProfiles;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.init.Biomes;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.storage.RegionFile;
+
+/**
+ * Command line tool that adds debris to a save without running a server. It
+ * reads the Anvil region files of a dimension, applies the same placement
+ * rules as world generation to every populated chunk that does not have
+ * debris yet, and writes the changed chunks back. Run it on a save that is
+ * not open in the game:
+ *
+ * gradlew injectDebris -Pargs="world [options]"
+ *
+ * Options:
+ *
+ * --dimension n  dimension to process, default 0
+ * --threads n    worker threads, default the available processors
+ * --config dir   mod configuration directory, default config/debris
+ * --debris-id n  block id to write debris with when the save has none
+ * --ground n     ground level of the dimension if not the vanilla one
+ *
+ * A chunk is decorated the way the game would when its +x, +z and +x+z
+ * neighbors exist, and is then marked so retrogen and later runs skip it.
+ * Debris can land in those neighbors, which may belong to the next region
+ * file over. Regions are worked in four passes by the parity of their
+ * coordinates so that no two regions in flight touch the same file.
+ *
+ * Adaptive attempts are turned off for the run. The controller learns from
+ * chunks in the order they are decorated, which across worker threads is
+ * not fixed, so the same save would not come out the same twice.
+ *
+ * Errors are logged and the tool exits with 1 if any region failed.
+ */
+public final class DebrisInjector {
+
+	private static final Pattern REGION_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+
+	private final LevelInfo level;
+	private final File regionDirectory;
+	private final int dimension;
+	private final int groundLevel;
+
+	private final AtomicLong chunks = new AtomicLong();
+	private final AtomicLong placed = new AtomicLong();
+	private final AtomicInteger failed = new AtomicInteger();
+
+	public DebrisInjector(@Nonnull final LevelInfo level, @Nonnull final File regionDirectory, final int dimension,
+			final int groundLevel) {
+		this.level = level;
+		this.regionDirectory = regionDirectory;
+		this.dimension = dimension;
+		this.groundLevel = groundLevel;
+	}
+
+	/**
+	 * Region files open for one task along with the chunks read from them.
+	 * Chunks that were changed are written back on close.
+	 */
+	private static final class RegionCache {
+
+		private final File directory;
+		private final TLongObjectHashMap<RegionFile> files = new TLongObjectHashMap<RegionFile>();
+		private final TLongObjectHashMap<ChunkData> chunks = new TLongObjectHashMap<ChunkData>();
+		private final TLongHashSet missing = new TLongHashSet();
+
+		public RegionCache(@Nonnull final File directory) {
+			this.directory = directory;
+		}
+
+		@Nullable
+		private RegionFile getFile(final int chunkX, final int chunkZ) {
+			final long key = ChunkPos.asLong(chunkX >> 5, chunkZ >> 5);
+			RegionFile file = this.files.get(key);
+			if (file == null && !this.files.containsKey(key)) {
+				final File f = new File(this.directory, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".mca");
+				file = f.exists() ? new RegionFile(f) : null;
+				this.files.put(key, file);
+			}
+			return file;
+		}
+
+		@Nullable
+		public ChunkData getChunk(final int chunkX, final int chunkZ) throws IOException {
+			final long key = ChunkPos.asLong(chunkX, chunkZ);
+			ChunkData chunk = this.chunks.get(key);
+			if (chunk != null || this.missing.contains(key))
+				return chunk;
+
+			final RegionFile file = getFile(chunkX, chunkZ);
+			final DataInputStream stream = file == null ? null
+					: file.getChunkDataInputStream(chunkX & 31, chunkZ & 31);
+			if (stream == null) {
+				this.missing.add(key);
+				return null;
+			}
+			try {
+				chunk = new ChunkData(CompressedStreamTools.read(stream));
+			} finally {
+				stream.close();
+			}
+			this.chunks.put(key, chunk);
+			return chunk;
+		}
+
+		public void close() throws IOException {
+			for (final long key : this.chunks.keys()) {
+				final ChunkData chunk = this.chunks.get(key);
+				if (!chunk.isModified())
+					continue;
+				final int chunkX = (int) key;
+				final int chunkZ = (int) (key >> 32);
+				final DataOutputStream stream = getFile(chunkX, chunkZ).getChunkDataOutputStream(chunkX & 31,
+						chunkZ & 31);
+				try {
+					CompressedStreamTools.write(chunk.save(), stream);
+				} finally {
+					stream.close();
+				}
+			}
+			for (final RegionFile file : this.files.valueCollection())
+				if (file != null)
+					file.close();
+		}
+	}
+
+	private final class RegionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int regionX;
+		private final int regionZ;
+		private boolean hasFailed;
+
+		public RegionTask(final int regionX, final int regionZ) {
+			this.regionX = regionX;
+			this.regionZ = regionZ;
+		}
+
+		@Override
+		protected void compute() {
+			final RegionCache cache = new RegionCache(DebrisInjector.this.regionDirectory);
+			try {
+				for (int x = 0; x < 32; x++)
+					for (int z = 0; z < 32; z++)
+						decorate(cache, (this.regionX << 5) + x, (this.regionZ << 5) + z);
+			} catch (@Nonnull final IOException e) {
+				failed(e);
+			} finally {
+				try {
+					cache.close();
+				} catch (@Nonnull final IOException e) {
+					failed(e);
+				}
+			}
+		}
+
+		private void failed(@Nonnull final IOException e) {
+			// Counted once per region even if closing fails as well
+			if (!this.hasFailed) {
+				this.hasFailed = true;
+				DebrisInjector.this.failed.incrementAndGet();
+			}
+			ModLog.error(String.format("Unable to process region %d,%d", this.regionX, this.regionZ), e);
+		}
+	}
+
+	private void decorate(@Nonnull final RegionCache cache, final int chunkX, final int chunkZ) throws IOException {
+		final ChunkData chunk = cache.getChunk(chunkX, chunkZ);
+		if (chunk == null || !chunk.isTerrainPopulated() || chunk.isDebrisGenerated())
+			return;
+
+		// The game only decorates once the rest of the window exists
+		final ChunkData[] window = { chunk, cache.getChunk(chunkX + 1, chunkZ), cache.getChunk(chunkX, chunkZ + 1),
+				cache.getChunk(chunkX + 1, chunkZ + 1) };
+		for (final ChunkData c : window)
+			if (c == null)
+				return;
+
+		// Same biome sample vanilla uses when populating the chunk
+		final Biome biome = Biome.getBiome(window[3].getBiome(0, 0), Biomes.DEFAULT);
+		final DebrisProfile profile = DebrisProfiles.get().getProfile(this.dimension, biome);
+		chunk.setDebrisGenerated();
+		this.chunks.incrementAndGet();
+		if (!profile.isEnabled())
+			return;
+
+		final long seed = this.level.getSeed();
+		final int toPlace = DebrisBiomeDecorator.getAttempts(profile, seed, this.dimension, this.groundLevel, chunkX,
+				chunkZ);
+		final int maxY = profile.getMaxY(this.groundLevel);
+		if (maxY - profile.getMinY() < 1 || toPlace < 1)
+			return;
+
+		final OfflineView view = new OfflineView(this.level, chunkX, chunkZ, window);
+		final Random rand = DebrisBiomeDecorator.getChunkRandom(seed, chunkX, chunkZ);
+		final int originX = (chunkX << 4) + 8;
+		final int originZ = (chunkZ << 4) + 8;
+		final int count;
+		if (ModOptions.useFloorIndex)
+			count = DebrisPlanner.placeFromIndex(view, rand, profile, originX, originZ, maxY, toPlace);
+		else
+			count = DebrisPlanner.placeRandom(view, rand, profile, originX, originZ, maxY, toPlace);
+		this.placed.addAndGet(count);
+	}
+
+	/**
+	 * Processes every region file in the directory using the pool.
+	 */
+	public void run(@Nonnull final ForkJoinPool pool) {
+		final List<int[]> regions = new ArrayList<int[]>();
+		final String[] names = this.regionDirectory.list();
+		if (names != null) {
+			for (final String name : names) {
+				final Matcher m = REGION_NAME.matcher(name);
+				if (m.matches())
+					regions.add(new int[] { Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)) });
+			}
+		}
+
+		for (int pass = 0; pass < 4; pass++) {
+			final List<RegionTask> tasks = new ArrayList<RegionTask>();
+			for (final int[] r : regions)
+				if (((r[0] & 1) | ((r[1] & 1) << 1)) == pass)
+					tasks.add(new RegionTask(r[0], r[1]));
+			for (final RegionTask task : tasks)
+				pool.execute(task);
+			for (final RegionTask task : tasks)
+				task.join();
+		}
+	}
+
+	public long getChunks() {
+		return this.chunks.get();
+	}
+
+	public long getPlaced() {
+		return this.placed.get();
+	}
+
+	/**
+	 * Number of regions that could not be processed.
+	 */
+	public int getFailed() {
+		return this.failed.get();
+	}
+
+	private static void usage() {
+		System.err.println(
+				"Usage: DebrisInjector <world> [--dimension n] [--threads n] [--config dir] [--debris-id n] [--ground n]");
+		System.exit(2);
+	}
+
+	public static void main(@Nonnull final String[] args) throws IOException {
+		if (args.length < 1)
+			usage();
+
+		final File world = new File(args[0]);
+		int dimension = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		File config = new File("config", "debris");
+		int debrisId = -1;
+		Integer ground = null;
+
+		for (int i = 1; i < args.length; i++) {
+			if (i + 1 >= args.length)
+				usage();
+			final String value = args[++i];
+			if ("--dimension".equals(args[i - 1]))
+				dimension = Integer.parseInt(value);
+			else if ("--threads".equals(args[i - 1]))
+				threads = Integer.parseInt(value);
+			else if ("--config".equals(args[i - 1]))
+				config = new File(value);
+			else if ("--debris-id".equals(args[i - 1]))
+				debrisId = Integer.parseInt(value);
+			else if ("--ground".equals(args[i - 1]))
+				ground = Integer.valueOf(value);
+			else
+				usage();
+		}
+
+		OfflineEnvironment.init(config);
+		// Keeps the output the same from one run to the next
+		ModOptions.adaptiveAttempts = false;
+
+		final LevelInfo level = LevelInfo.load(world, debrisId);
+		if (level.getDebrisId() < 0) {
+			ModLog.error(String.format("The save has no id for %s; open it once with the mod installed"
+					+ " or pass --debris-id", LevelInfo.DEBRIS_NAME));
+			System.exit(1);
+		}
+
+		final File regions = new File(dimension == 0 ? world : new File(world, "DIM" + dimension), "region");
+		final DebrisInjector injector = new DebrisInjector(level, regions, dimension,
+				level.getGroundLevel(dimension, ground));
+
+		final long start = System.nanoTime();
+		final ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		injector.run(pool);
+		pool.shutdown();
+
+		final double seconds = (System.nanoTime() - start) / 1.0E9D;
+		System.out.println(String.format("Debris injection: %d chunks, %d debris placed, %.1f seconds",
+				injector.getChunks(), injector.getPlaced(), seconds));
+		if (injector.getFailed() > 0) {
+			ModLog.error(String.format("%d regions could not be processed", injector.getFailed()));
+			System.exit(1);
+		}
+	}
+}
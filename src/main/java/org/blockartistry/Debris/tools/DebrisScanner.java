@@ -0,0 +1,384 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.OfflineEnvironment;
+import org.blockartistry.Debris.blocks.BlockDebrisVariant.Variant;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Command line tool that counts the debris in a save by variant, dimension
+ * and 16 block Y band without running the game:
+ *
+ * gradlew scanDebris -Pargs="world [--dimension n] [--threads n] [--debris-id n]"
+ *
+ * Region files are memory mapped and scanned in parallel. Anvil compresses
+ * each chunk as a whole, so every chunk has to be inflated, but the block
+ * array of a section is only decoded when it holds the low byte of the
+ * debris id somewhere. Most sections never get past that check.
+ *
+ * Errors are logged and the tool exits with 1 if any region failed, since
+ * the counts are then short by whatever that region held.
+ */
+public final class DebrisScanner {
+
+	private static final Pattern REGION_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+	private static final Pattern DIMENSION_NAME = Pattern.compile("DIM(-?\\d+)");
+
+	private static final int SECTOR_SIZE = 4096;
+	private static final int BANDS = 16;
+	private static final int VARIANTS = 16;
+
+	/**
+	 * Totals for a dimension.
+	 */
+	public static final class Counts {
+		public long chunks;
+		public long chunksWithDebris;
+		public long maxPerChunk;
+		public int maxChunkX;
+		public int maxChunkZ;
+		// Indexed by [meta][band]
+		public final long[][] debris = new long[VARIANTS][BANDS];
+
+		public long total() {
+			long total = 0;
+			for (final long[] bands : this.debris)
+				for (final long c : bands)
+					total += c;
+			return total;
+		}
+
+		public synchronized void add(@Nonnull final Counts counts) {
+			this.chunks += counts.chunks;
+			this.chunksWithDebris += counts.chunksWithDebris;
+			if (counts.maxPerChunk > this.maxPerChunk) {
+				this.maxPerChunk = counts.maxPerChunk;
+				this.maxChunkX = counts.maxChunkX;
+				this.maxChunkZ = counts.maxChunkZ;
+			}
+			for (int v = 0; v < VARIANTS; v++)
+				for (int b = 0; b < BANDS; b++)
+					this.debris[v][b] += counts.debris[v][b];
+		}
+	}
+
+	private final int debrisId;
+	private final AtomicInteger failed = new AtomicInteger();
+
+	public DebrisScanner(final int debrisId) {
+		this.debrisId = debrisId;
+	}
+
+	/**
+	 * Number of regions that could not be scanned.
+	 */
+	public int getFailed() {
+		return this.failed.get();
+	}
+
+	private final class RegionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File file;
+		private final Counts totals;
+
+		public RegionTask(@Nonnull final File file, @Nonnull final Counts totals) {
+			this.file = file;
+			this.totals = totals;
+		}
+
+		@Override
+		protected void compute() {
+			final Counts counts = new Counts();
+			try {
+				scanRegion(this.file, counts);
+			} catch (@Nonnull final IOException e) {
+				DebrisScanner.this.failed.incrementAndGet();
+				ModLog.error(String.format("Unable to scan region %s", this.file.getName()), e);
+			}
+			this.totals.add(counts);
+		}
+	}
+
+	private void scanRegion(@Nonnull final File file, @Nonnull final Counts counts) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		final MappedByteBuffer buffer;
+		try {
+			if (raf.length() < SECTOR_SIZE * 2)
+				return;
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		} finally {
+			raf.close();
+		}
+
+		byte[] payload = new byte[SECTOR_SIZE];
+		for (int i = 0; i < 1024; i++) {
+			final int location = buffer.getInt(i << 2);
+			final int offset = (location >>> 8) * SECTOR_SIZE;
+			if (offset == 0 || offset + 5 > buffer.limit())
+				continue;
+
+			final int length = buffer.getInt(offset) - 1;
+			final byte compression = buffer.get(offset + 4);
+			if (length <= 0 || offset + 5 + length > buffer.limit())
+				continue;
+
+			if (payload.length < length)
+				payload = new byte[length];
+			buffer.position(offset + 5);
+			buffer.get(payload, 0, length);
+
+			final InputStream raw = new ByteArrayInputStream(payload, 0, length);
+			final InputStream stream;
+			if (compression == 2)
+				stream = new InflaterInputStream(raw);
+			else if (compression == 1)
+				stream = new GZIPInputStream(raw);
+			else
+				continue;
+
+			final DataInputStream data = new DataInputStream(stream);
+			try {
+				scanChunk(CompressedStreamTools.read(data), counts);
+			} finally {
+				data.close();
+			}
+		}
+	}
+
+	private void scanChunk(@Nonnull final NBTTagCompound root, @Nonnull final Counts counts) {
+		final NBTTagCompound level = root.getCompoundTag("Level");
+		final NBTTagList sections = level.getTagList("Sections", Constants.NBT.TAG_COMPOUND);
+		final byte low = (byte) this.debrisId;
+		final int high = this.debrisId >> 8;
+
+		counts.chunks++;
+		long found = 0;
+		for (int i = 0; i < sections.tagCount(); i++) {
+			final NBTTagCompound section = sections.getCompoundTagAt(i);
+			final byte[] blocks = section.getByteArray("Blocks");
+			if (!contains(blocks, low))
+				continue;
+
+			final byte[] add = section.hasKey("Add", Constants.NBT.TAG_BYTE_ARRAY) ? section.getByteArray("Add")
+					: null;
+			final byte[] meta = section.getByteArray("Data");
+			final int band = section.getByte("Y") & (BANDS - 1);
+			for (int idx = 0; idx < blocks.length; idx++) {
+				if (blocks[idx] != low || (add == null ? 0 : nibble(add, idx)) != high)
+					continue;
+				counts.debris[nibble(meta, idx)][band]++;
+				found++;
+			}
+		}
+
+		if (found > 0) {
+			counts.chunksWithDebris++;
+			if (found > counts.maxPerChunk) {
+				counts.maxPerChunk = found;
+				counts.maxChunkX = level.getInteger("xPos");
+				counts.maxChunkZ = level.getInteger("zPos");
+			}
+		}
+	}
+
+	private static boolean contains(@Nonnull final byte[] array, final byte value) {
+		for (final byte b : array)
+			if (b == value)
+				return true;
+		return false;
+	}
+
+	private static int nibble(@Nonnull final byte[] array, final int idx) {
+		return (array[idx >> 1] >> ((idx & 1) << 2)) & 15;
+	}
+
+	/**
+	 * Scans every region file in the directory using the pool.
+	 */
+	@Nonnull
+	public Counts scan(@Nonnull final File regionDirectory, @Nonnull final ForkJoinPool pool) {
+		final Counts totals = new Counts();
+		final List<RegionTask> tasks = new ArrayList<RegionTask>();
+		final File[] files = regionDirectory.listFiles();
+		if (files != null)
+			for (final File file : files)
+				if (REGION_NAME.matcher(file.getName()).matches())
+					tasks.add(new RegionTask(file, totals));
+		for (final RegionTask task : tasks)
+			pool.execute(task);
+		for (final RegionTask task : tasks)
+			task.join();
+		return totals;
+	}
+
+	/**
+	 * Region directories of the save by dimension.
+	 */
+	@Nonnull
+	public static TIntObjectHashMap<File> getDimensions(@Nonnull final File world) {
+		final TIntObjectHashMap<File> result = new TIntObjectHashMap<File>();
+		result.put(0, new File(world, "region"));
+		final File[] files = world.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				final Matcher m = DIMENSION_NAME.matcher(file.getName());
+				if (m.matches() && new File(file, "region").isDirectory())
+					result.put(Integer.parseInt(m.group(1)), new File(file, "region"));
+			}
+		}
+		return result;
+	}
+
+	@Nonnull
+	public static String report(final int dimension, @Nonnull final Counts counts) {
+		final StringBuilder builder = new StringBuilder();
+		final long total = counts.total();
+		builder.append(String.format("Dimension %d: %d chunks, %d with debris, %d debris (%.2f/chunk)", dimension,
+				counts.chunks, counts.chunksWithDebris, total,
+				counts.chunks == 0 ? 0D : (double) total / (double) counts.chunks));
+		if (counts.maxPerChunk > 0)
+			builder.append(String.format(", most %d in chunk %d,%d", counts.maxPerChunk, counts.maxChunkX,
+					counts.maxChunkZ));
+		builder.append('\n');
+		if (total == 0)
+			return builder.toString();
+
+		int topBand = 0;
+		for (final long[] bands : counts.debris)
+			for (int b = 0; b < BANDS; b++)
+				if (bands[b] > 0)
+					topBand = Math.max(topBand, b);
+
+		builder.append(String.format("  %-20s %9s", "Y", "all"));
+		for (int b = 0; b <= topBand; b++)
+			builder.append(String.format(" %7d", b << 4));
+		builder.append('\n');
+
+		for (int meta = 0; meta < VARIANTS; meta++) {
+			final long[] bands = counts.debris[meta];
+			long sum = 0;
+			for (final long c : bands)
+				sum += c;
+			if (sum == 0)
+				continue;
+			final Variant variant = Variant.byMetadata(meta);
+			final String name = variant.getMeta() == meta ? variant.getName() : "meta " + meta;
+			builder.append(String.format("  %-20s %9d", name, sum));
+			for (int b = 0; b <= topBand; b++)
+				builder.append(String.format(" %7d", bands[b]));
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	private static void usage() {
+		System.err.println("Usage: DebrisScanner <world> [--dimension n] [--threads n] [--debris-id n]");
+		System.exit(2);
+	}
+
+	public static void main(@Nonnull final String[] args) throws IOException {
+		if (args.length < 1)
+			usage();
+
+		final File world = new File(args[0]);
+		Integer dimension = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int debrisId = -1;
+
+		for (int i = 1; i < args.length; i++) {
+			if (i + 1 >= args.length)
+				usage();
+			final String value = args[++i];
+			if ("--dimension".equals(args[i - 1]))
+				dimension = Integer.valueOf(value);
+			else if ("--threads".equals(args[i - 1]))
+				threads = Integer.parseInt(value);
+			else if ("--debris-id".equals(args[i - 1]))
+				debrisId = Integer.parseInt(value);
+			else
+				usage();
+		}
+
+		OfflineEnvironment.init(new File("config", "debris"));
+
+		final LevelInfo level = LevelInfo.load(world, debrisId);
+		if (level.getDebrisId() < 0) {
+			ModLog.error(String.format("The save has no id for %s; pass --debris-id", LevelInfo.DEBRIS_NAME));
+			System.exit(1);
+		}
+
+		final DebrisScanner scanner = new DebrisScanner(level.getDebrisId());
+		final TIntObjectHashMap<File> dimensions = getDimensions(world);
+		final int[] keys = dimensions.keys();
+		Arrays.sort(keys);
+
+		final long start = System.nanoTime();
+		final ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		for (final int dim : keys) {
+			if (dimension != null && dimension != dim)
+				continue;
+			final File regions = dimensions.get(dim);
+			if (regions.isDirectory())
+				System.out.print(report(dim, scanner.scan(regions, pool)));
+		}
+		pool.shutdown();
+
+		System.out.println(String.format("Scanned in %.1f seconds", (System.nanoTime() - start) / 1.0E9D));
+		if (scanner.getFailed() > 0) {
+			ModLog.error(String.format("%d regions could not be scanned", scanner.getFailed()));
+			System.exit(1);
+		}
+	}
+}
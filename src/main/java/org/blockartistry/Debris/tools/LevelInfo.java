@@ -0,0 +1,166 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.blocks.ModBlocks;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * What the tools need from the level.dat of a save: the seed, the world type
+ * and the numeric block ids with the block states they stand for. Ids come
+ * from the FML registry data in level.dat; saves without it are taken to use
+ * the vanilla ids. Blocks that are not available outside of the game, such
+ * as those of other mods, read as stone so placement still treats them as
+ * solid ground. They are never written.
+ */
+public final class LevelInfo {
+
+	public static final String DEBRIS_NAME = "debris:debris";
+	public static final int MAX_ID = 4096;
+
+	private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+	private static final IBlockState UNKNOWN = Blocks.STONE.getDefaultState();
+
+	// Indexed by (id << 4) | meta
+	private final IBlockState[] states = new IBlockState[MAX_ID << 4];
+	private final int debrisId;
+	private final long seed;
+	private final boolean flat;
+
+	private LevelInfo(@Nonnull final NBTTagCompound level, final int debrisOverride) {
+		final NBTTagCompound data = level.getCompoundTag("Data");
+		this.seed = data.getLong("RandomSeed");
+		this.flat = "flat".equalsIgnoreCase(data.getString("generatorName"));
+
+		final Block[] blocks = new Block[MAX_ID];
+		int debris = -1;
+		final NBTTagList ids = level.getCompoundTag("FML").getCompoundTag("Registries")
+				.getCompoundTag("minecraft:blocks").getTagList("ids", Constants.NBT.TAG_COMPOUND);
+		if (ids.hasNoTags()) {
+			for (final Block block : Block.REGISTRY)
+				blocks[Block.getIdFromBlock(block)] = block;
+		} else {
+			for (int i = 0; i < ids.tagCount(); i++) {
+				final NBTTagCompound entry = ids.getCompoundTagAt(i);
+				final String name = entry.getString("K");
+				final int id = entry.getInteger("V");
+				if (id < 0 || id >= MAX_ID)
+					continue;
+				if (DEBRIS_NAME.equals(name)) {
+					debris = id;
+				} else {
+					final ResourceLocation key = new ResourceLocation(name);
+					if (Block.REGISTRY.containsKey(key))
+						blocks[id] = Block.REGISTRY.getObject(key);
+				}
+			}
+		}
+
+		if (debrisOverride >= 0)
+			debris = debrisOverride;
+		this.debrisId = debris;
+		if (debris >= 0)
+			blocks[debris] = ModBlocks.DEBRIS;
+
+		for (int id = 0; id < MAX_ID; id++) {
+			final Block block = blocks[id];
+			for (int meta = 0; meta < 16; meta++)
+				this.states[(id << 4) | meta] = block == null ? (id == 0 ? AIR : UNKNOWN) : stateFor(block, meta);
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Nonnull
+	private static IBlockState stateFor(@Nonnull final Block block, final int meta) {
+		try {
+			return block.getStateFromMeta(meta);
+		} catch (@Nonnull final Throwable t) {
+			return block.getDefaultState();
+		}
+	}
+
+	/**
+	 * Reads the level.dat of a save. debrisOverride, if not
+	 * negative, is used as the debris block id instead of the one in the
+	 * save.
+	 */
+	@Nonnull
+	public static LevelInfo load(@Nonnull final File worldDirectory, final int debrisOverride) throws IOException {
+		final InputStream stream = new FileInputStream(new File(worldDirectory, "level.dat"));
+		try {
+			return new LevelInfo(CompressedStreamTools.readCompressed(stream), debrisOverride);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Block state for a combined (id << 4) | meta value.
+	 */
+	@Nonnull
+	public IBlockState getState(final int combined) {
+		return this.states[combined];
+	}
+
+	/**
+	 * Id of the debris block in the save, or -1 if the save has never been
+	 * opened with the mod installed.
+	 */
+	public int getDebrisId() {
+		return this.debrisId;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * Ground level of a dimension in the save, matching what the world
+	 * provider reports in game for the vanilla dimensions.
+	 */
+	public int getGroundLevel(final int dimension, @Nullable final Integer override) {
+		if (override != null)
+			return override;
+		if (dimension == 1)
+			return 50;
+		return this.flat && dimension == 0 ? 4 : 64;
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.tools;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.blocks.ModBlocks;
+import org.blockartistry.Debris.world.IDecorationView;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Decoration window over chunks read from region files: the 2x2 chunks
+ * starting at the chunk being decorated. Reads outside of the window return
+ * air. Debris placed through the view is written into the chunk data with
+ * the id the save uses for the debris block.
+ */
+public class OfflineView implements IDecorationView {
+
+	private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+
+	private final LevelInfo level;
+	private final int minX;
+	private final int minZ;
+	private final ChunkData[] chunks;
+
+	/**
+	 * chunks holds the window in x then z order: the chunk itself, +x, +z
+	 * and +x+z.
+	 */
+	public OfflineView(@Nonnull final LevelInfo level, final int chunkX, final int chunkZ,
+			@Nonnull final ChunkData[] chunks) {
+		this.level = level;
+		this.minX = chunkX << 4;
+		this.minZ = chunkZ << 4;
+		this.chunks = chunks;
+	}
+
+	@Nullable
+	private ChunkData getChunk(final int x, final int z) {
+		final int dx = (x - this.minX) >> 4;
+		final int dz = (z - this.minZ) >> 4;
+		if (dx < 0 || dx > 1 || dz < 0 || dz > 1)
+			return null;
+		return this.chunks[(dz << 1) | dx];
+	}
+
+	@Override
+	@Nonnull
+	public IBlockState getBlockState(final int x, final int y, final int z) {
+		if (y < 0 || y > 255)
+			return AIR;
+		final ChunkData chunk = getChunk(x, z);
+		return chunk == null ? AIR : this.level.getState(chunk.get(x & 15, y, z & 15));
+	}
+
+	@Override
+	public boolean isAirBlock(final int x, final int y, final int z) {
+		return getBlockState(x, y, z).getBlock() == Blocks.AIR;
+	}
+
+	@Override
+	public boolean isSectionEmpty(final int x, final int y, final int z) {
+		if (y < 0 || y > 255)
+			return false;
+		final ChunkData chunk = getChunk(x, z);
+		return chunk != null && chunk.isSectionEmpty(y);
+	}
+
+	@Override
+	public boolean isSectionFull(final int x, final int y, final int z) {
+		return false;
+	}
+
+	@Override
+	public void placeDebris(@Nonnull final BlockPos pos, @Nonnull final IBlockState state) {
+		final ChunkData chunk = getChunk(pos.getX(), pos.getZ());
+		if (chunk != null) {
+			final int meta = ModBlocks.DEBRIS.getMetaFromState(state);
+			chunk.set(pos.getX() & 15, pos.getY(), pos.getZ() & 15, this.level.getDebrisId(), meta);
+			chunk.addJournalEntry(pos.getX() & 15, pos.getY(), pos.getZ() & 15, meta);
+		}
+	}
+
+	@Override
+	@Nonnull
+	public IBlockState getBlockState(@Nonnull final BlockPos pos) {
+		return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	public boolean isAirBlock(@Nonnull final BlockPos pos) {
+		return isAirBlock(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	@Nullable
+	public TileEntity getTileEntity(@Nonnull final BlockPos pos) {
+		return null;
+	}
+
+	@Override
+	public int getStrongPower(@Nonnull final BlockPos pos, @Nonnull final EnumFacing direction) {
+		return 0;
+	}
+
+	@Override
+	public boolean isSideSolid(@Nonnull final BlockPos pos, @Nonnull final EnumFacing side, final boolean _default) {
+		if (getChunk(pos.getX(), pos.getZ()) == null)
+			return _default;
+		final IBlockState state = getBlockState(pos);
+		return state.getBlock().isSideSolid(state, this, pos, side);
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public int getCombinedLight(@Nonnull final BlockPos pos, final int lightValue) {
+		return 0;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	@Nonnull
+	public Biome getBiome(@Nonnull final BlockPos pos) {
+		return Biomes.DEFAULT;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	@Nonnull
+	public WorldType getWorldType() {
+		return WorldType.DEFAULT;
+	}
+}
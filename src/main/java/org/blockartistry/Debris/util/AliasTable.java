@@ -0,0 +1,123 @@
+/* This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Immutable sampler over a set of integer weights using Vose's alias method.
+ * A draw is one column pick plus one threshold compare regardless of the
+ * number of weights. The thresholds are kept as integers scaled to the total
+ * weight so the resulting distribution is exact: index i comes back with a
+ * probability of weight[i] / totalWeight.
+ */
+public final class AliasTable {
+
+	private final int[] probability;
+	private final int[] alias;
+	private final int totalWeight;
+
+	public AliasTable(@Nonnull final int[] weights) {
+		this(weights, weights.length);
+	}
+
+	public AliasTable(@Nonnull final int[] weights, final int count) {
+		assert count > 0;
+
+		this.probability = new int[count];
+		this.alias = new int[count];
+
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			assert weights[i] >= 0;
+			total += weights[i];
+		}
+
+		assert total > 0 && total <= Integer.MAX_VALUE;
+		this.totalWeight = (int) total;
+
+		// Each column holds totalWeight worth of probability. Scale the
+		// weights by the column count so they are expressed in the same
+		// units and split them into under and over full columns.
+		final long[] scaled = new long[count];
+		final int[] small = new int[count];
+		final int[] large = new int[count];
+		int smallCount = 0;
+		int largeCount = 0;
+
+		for (int i = 0; i < count; i++) {
+			scaled[i] = (long) weights[i] * count;
+			if (scaled[i] < total)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+
+		while (smallCount > 0 && largeCount > 0) {
+			final int less = small[--smallCount];
+			final int more = large[--largeCount];
+
+			this.probability[less] = (int) scaled[less];
+			this.alias[less] = more;
+
+			scaled[more] = (scaled[more] + scaled[less]) - total;
+			if (scaled[more] < total)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+
+		// Whatever is left is exactly full
+		while (largeCount > 0) {
+			final int idx = large[--largeCount];
+			this.probability[idx] = this.totalWeight;
+			this.alias[idx] = idx;
+		}
+		while (smallCount > 0) {
+			final int idx = small[--smallCount];
+			this.probability[idx] = this.totalWeight;
+			this.alias[idx] = idx;
+		}
+	}
+
+	/**
+	 * Returns a random index into the weight array used to build the table.
+	 */
+	public int next(@Nonnull final Random rand) {
+		if (this.probability.length == 1)
+			return 0;
+		final int column = rand.nextInt(this.probability.length);
+		return rand.nextInt(this.totalWeight) < this.probability[column] ? column : this.alias[column];
+	}
+
+	public int size() {
+		return this.probability.length;
+	}
+
+	public int getTotalWeight() {
+		return this.totalWeight;
+	}
+}
@@ -24,13 +24,19 @@
 
 package org.blockartistry.Debris.util;
 
+import java.util.Map;
 import java.util.Random;
 
 import javax.annotation.Nonnull;
 
+import gnu.trove.map.hash.TCustomHashMap;
+import gnu.trove.strategy.IdentityHashingStrategy;
 import net.minecraft.block.state.IBlockState;
 
-public final class BlockStateWeightTable extends WeightTable<BlockStateWeightTable.DebrisItem> {
+public final class BlockStateWeightTable extends FenwickWeightTable<BlockStateWeightTable.DebrisItem> {
+
+	private final Map<IBlockState, DebrisItem> lookup = new TCustomHashMap<IBlockState, DebrisItem>(
+			IdentityHashingStrategy.INSTANCE);
 
 	public static class DebrisItem extends WeightTable.Item {
 
@@ -51,4 +57,42 @@ public final class BlockStateWeightTable extends WeightTable<BlockStateWeightTab
 	public void add(@Nonnull final IBlockState state, final int weight) {
 		super.add(new DebrisItem(state, weight));
 	}
+
+	@Override
+	public void add(@Nonnull final DebrisItem entry) {
+		super.add(entry);
+		this.lookup.put(entry.state, entry);
+	}
+
+	@Override
+	public void remove(@Nonnull final DebrisItem entry) {
+		super.remove(entry);
+		if (this.lookup.get(entry.state) == entry)
+			this.lookup.remove(entry.state);
+	}
+
+	/**
+	 * Changes the weight of the entry for the state. Returns false if the
+	 * state is not in the table.
+	 */
+	public boolean setWeight(@Nonnull final IBlockState state, final int weight) {
+		final DebrisItem item = this.lookup.get(state);
+		return item != null && setWeight(item, weight);
+	}
+
+	/**
+	 * Flattens the current entries into an immutable table for use on hot
+	 * paths once the table has been populated.
+	 */
+	@Nonnull
+	public CompiledWeightTable<IBlockState> freeze() {
+		final int[] weights = new int[this.items.size()];
+		final IBlockState[] states = new IBlockState[weights.length];
+		for (int i = 0; i < weights.length; i++) {
+			final DebrisItem item = this.items.get(i);
+			weights[i] = getWeight(item);
+			states[i] = item.state;
+		}
+		return new CompiledWeightTable<IBlockState>(weights, states);
+	}
 }
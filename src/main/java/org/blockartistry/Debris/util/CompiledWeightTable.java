@@ -0,0 +1,86 @@
+/* This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Immutable weight table flattened into parallel primitive arrays. A draw is
+ * a single random number and a binary search over the running weight totals
+ * with no allocation and no Item wrappers to walk through.
+ */
+public final class CompiledWeightTable<V> {
+
+	private final int[] cumulativeWeights;
+	private final Object[] values;
+	private final int totalWeight;
+
+	public CompiledWeightTable(@Nonnull final int[] weights, @Nonnull final Object[] values) {
+		assert weights.length == values.length;
+		assert weights.length > 0;
+
+		this.cumulativeWeights = new int[weights.length];
+		this.values = Arrays.copyOf(values, values.length, Object[].class);
+
+		int total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			assert weights[i] >= 0;
+			total += weights[i];
+			this.cumulativeWeights[i] = total;
+		}
+
+		assert total > 0;
+		this.totalWeight = total;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nonnull
+	public V next(@Nonnull final Random rand) {
+		final int target = rand.nextInt(this.totalWeight);
+
+		// Find the first entry whose running total exceeds the target
+		int low = 0;
+		int high = this.cumulativeWeights.length - 1;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (this.cumulativeWeights[mid] > target)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+
+		return (V) this.values[low];
+	}
+
+	public int size() {
+		return this.values.length;
+	}
+
+	public int getTotalWeight() {
+		return this.totalWeight;
+	}
+}
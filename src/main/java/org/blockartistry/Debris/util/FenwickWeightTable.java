@@ -0,0 +1,172 @@
+/* This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import gnu.trove.map.custom_hash.TObjectIntCustomHashMap;
+import gnu.trove.strategy.IdentityHashingStrategy;
+
+/**
+ * Mutable weight table backed by a Fenwick (binary indexed) tree over the
+ * entry weights. add, remove, setWeight and next are all O(log n). An entry's
+ * weight starts out as its itemWeight and can be changed in place with
+ * setWeight; a weight of 0 keeps the entry in the table without it ever being
+ * selected. Entry order is not preserved across removes.
+ */
+public class FenwickWeightTable<T extends WeightTable.Item> extends WeightTable<T> {
+
+	private static final int NO_SLOT = -1;
+
+	private final TObjectIntCustomHashMap<T> slots = new TObjectIntCustomHashMap<T>(IdentityHashingStrategy.INSTANCE,
+			16, 0.5F, NO_SLOT);
+
+	// Weight of each slot, and the tree over them. The tree is 1 based and
+	// its capacity is always a power of 2.
+	private int[] weights = new int[16];
+	private int[] tree = new int[17];
+
+	public FenwickWeightTable() {
+	}
+
+	private int capacity() {
+		return this.weights.length;
+	}
+
+	private void update(final int slot, final int delta) {
+		for (int i = slot + 1; i <= capacity(); i += i & -i)
+			this.tree[i] += delta;
+	}
+
+	private void grow() {
+		final int capacity = capacity() * 2;
+		this.weights = Arrays.copyOf(this.weights, capacity);
+
+		// Rebuild the tree in O(n) rather than n updates
+		this.tree = new int[capacity + 1];
+		for (int i = 1; i <= capacity; i++) {
+			this.tree[i] += this.weights[i - 1];
+			final int parent = i + (i & -i);
+			if (parent <= capacity)
+				this.tree[parent] += this.tree[i];
+		}
+	}
+
+	@Override
+	public void add(@Nonnull final T entry) {
+		assert entry != null;
+		assert entry.itemWeight > 0;
+		assert !this.slots.containsKey(entry);
+
+		final int slot = this.items.size();
+		if (slot == capacity())
+			grow();
+
+		this.items.add(entry);
+		this.slots.put(entry, slot);
+		this.weights[slot] = entry.itemWeight;
+		this.totalWeight += entry.itemWeight;
+		update(slot, entry.itemWeight);
+	}
+
+	@Override
+	public void remove(@Nonnull final T entry) {
+		final int slot = this.slots.remove(entry);
+		if (slot == NO_SLOT)
+			return;
+
+		final int last = this.items.size() - 1;
+		final int weight = this.weights[slot];
+
+		// Move the last entry into the vacated slot so the tree stays dense
+		if (slot != last) {
+			final T moved = this.items.get(last);
+			final int movedWeight = this.weights[last];
+			this.items.set(slot, moved);
+			this.slots.put(moved, slot);
+			this.weights[slot] = movedWeight;
+			update(slot, movedWeight - weight);
+			update(last, -movedWeight);
+		} else {
+			update(last, -weight);
+		}
+
+		this.weights[last] = 0;
+		this.items.remove(last);
+		this.totalWeight -= weight;
+	}
+
+	/**
+	 * Changes the weight of an entry that is in the table. Returns false if
+	 * the entry could not be found.
+	 */
+	public boolean setWeight(@Nonnull final T entry, final int weight) {
+		assert weight >= 0;
+
+		final int slot = this.slots.get(entry);
+		if (slot == NO_SLOT)
+			return false;
+
+		final int delta = weight - this.weights[slot];
+		if (delta != 0) {
+			this.weights[slot] = weight;
+			this.totalWeight += delta;
+			update(slot, delta);
+		}
+		return true;
+	}
+
+	@Override
+	public int getWeight(@Nonnull final T entry) {
+		final int slot = this.slots.get(entry);
+		return slot == NO_SLOT ? 0 : this.weights[slot];
+	}
+
+	@Override
+	@Nonnull
+	public T next(@Nonnull final Random rand) {
+
+		assert this.totalWeight > 0;
+
+		if (this.totalWeight < 1)
+			return null;
+
+		// Walk down the tree looking for the slot where the running total
+		// first exceeds the target.
+		int target = rand.nextInt(this.totalWeight);
+		int slot = 0;
+		for (int step = Integer.highestOneBit(capacity()); step > 0; step >>= 1) {
+			final int probe = slot + step;
+			if (probe <= capacity() && this.tree[probe] <= target) {
+				slot = probe;
+				target -= this.tree[probe];
+			}
+		}
+
+		return this.items.get(slot);
+	}
+}
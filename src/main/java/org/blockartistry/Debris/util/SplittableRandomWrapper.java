@@ -0,0 +1,81 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.util;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Presents a SplittableRandom as a java.util.Random so it can be handed to
+ * code that expects the latter. Unlike Random it does not synchronize on an
+ * atomic seed, and it must not be shared between threads.
+ */
+public class SplittableRandomWrapper extends Random {
+
+	private static final long serialVersionUID = -4476397924185925627L;
+
+	// Assigned through setSeed() from the Random constructor, so there must
+	// not be an initializer here.
+	private SplittableRandom rand;
+
+	public SplittableRandomWrapper(final long seed) {
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(final long seed) {
+		this.rand = new SplittableRandom(seed);
+	}
+
+	@Override
+	protected int next(final int bits) {
+		return (int) (this.rand.nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public int nextInt() {
+		return this.rand.nextInt();
+	}
+
+	@Override
+	public int nextInt(final int bound) {
+		return this.rand.nextInt(bound);
+	}
+
+	@Override
+	public long nextLong() {
+		return this.rand.nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return this.rand.nextDouble();
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return this.rand.nextBoolean();
+	}
+}
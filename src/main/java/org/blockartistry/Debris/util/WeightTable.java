@@ -35,6 +35,10 @@ public class WeightTable<T extends WeightTable.Item> {
 	protected final List<T> items = new ArrayList<T>();
 	protected int totalWeight = 0;
 
+	// Compiled form of the table used for sampling. It is built on demand
+	// and thrown away whenever the entries change.
+	private AliasTable sampler;
+
 	public abstract static class Item {
 
 		public final int itemWeight;
@@ -54,11 +58,22 @@ public class WeightTable<T extends WeightTable.Item> {
 		
 		this.totalWeight += entry.itemWeight;
 		this.items.add(entry);
+		this.sampler = null;
 	}
 
 	public void remove(@Nonnull final T entry) {
-		if(this.items.remove(entry))
+		if(this.items.remove(entry)) {
 			this.totalWeight -= entry.itemWeight;
+			this.sampler = null;
+		}
+	}
+
+	@Nonnull
+	protected AliasTable compile() {
+		final int[] weights = new int[this.items.size()];
+		for (int i = 0; i < weights.length; i++)
+			weights[i] = this.items.get(i).itemWeight;
+		return new AliasTable(weights);
 	}
 
 	@Nonnull
@@ -70,13 +85,18 @@ public class WeightTable<T extends WeightTable.Item> {
 		if(this.totalWeight < 1 || this.items == null || this.items.isEmpty())
 			return null;
 		
-		int targetWeight = rand.nextInt(this.totalWeight);
+		AliasTable table = this.sampler;
+		if (table == null)
+			this.sampler = table = compile();
 
-		int i = 0;
-		for (i = this.items.size(); (targetWeight -= this.items.get(i - 1).itemWeight) >= 0; i--)
-			;
+		return this.items.get(table.next(rand));
+	}
 
-		return this.items.get(i - 1);
+	/**
+	 * Returns the weight the entry is currently drawn with.
+	 */
+	public int getWeight(@Nonnull final T entry) {
+		return entry.itemWeight;
 	}
 
 	@Nonnull
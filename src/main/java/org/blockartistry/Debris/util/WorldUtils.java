@@ -28,7 +28,7 @@ import javax.annotation.Nonnull;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.world.World;
+import net.minecraft.world.IBlockAccess;
 
 public class WorldUtils {
 
@@ -36,7 +36,7 @@ public class WorldUtils {
 		return state.getBlock() == Blocks.AIR;
 	}
 
-	public static boolean isAirBlock(@Nonnull final World world, @Nonnull final BlockPos pos) {
+	public static boolean isAirBlock(@Nonnull final IBlockAccess world, @Nonnull final BlockPos pos) {
 		return isAirBlock(world.getBlockState(pos));
 	}
 	
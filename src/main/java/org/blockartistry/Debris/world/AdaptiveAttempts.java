@@ -0,0 +1,142 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.ModOptions;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * Sizes the number of placement attempts per chunk from the rate at which
+ * attempts have been succeeding in the dimension. The configured density is
+ * treated as the attempt count that gives the intended amount of debris when
+ * attempts succeed at the target rate. The controller keeps a moving average
+ * of the observed rate and asks for as many attempts as it takes to place
+ * that same amount at the observed rate, within the configured bounds.
+ * Dimensions with lots of open cave floor get by with fewer probes; in
+ * dimensions where most probes fail the budget is capped at the maximum.
+ *
+ * The attempts a chunk gets depend on the chunks decorated before it, so the
+ * controller is off whenever Chunk Seeded Random or Off-thread Planning is
+ * on; both promise a layout that does not depend on generation order.
+ */
+public final class AdaptiveAttempts {
+
+	// Weight of the latest chunk in the moving average
+	private static final double ALPHA = 0.05D;
+
+	public static final class State {
+		public final int dimension;
+		public double successRate;
+		public long chunks;
+		public int lastAttempts;
+
+		public State(final int dimension) {
+			this.dimension = dimension;
+			this.successRate = ModOptions.adaptiveTargetRate;
+		}
+	}
+
+	private static final TIntObjectHashMap<State> states = new TIntObjectHashMap<State>();
+
+	private AdaptiveAttempts() {
+	}
+
+	/**
+	 * Indicates whether the controller is in use.
+	 */
+	public static boolean isEnabled() {
+		return ModOptions.adaptiveAttempts && !ModOptions.chunkSeededRandom && !ModOptions.asyncPlanning;
+	}
+
+	@Nonnull
+	private static State getState(final int dimension) {
+		State state = states.get(dimension);
+		if (state == null) {
+			state = new State(dimension);
+			states.put(dimension, state);
+		}
+		return state;
+	}
+
+	/**
+	 * Number of attempts to make in a chunk of the dimension where the
+	 * configured density calls for the given count.
+	 */
+	public static int getAttempts(final int dimension, final int configured) {
+		synchronized (states) {
+			final State state = getState(dimension);
+			final double wanted = configured * (double) ModOptions.adaptiveTargetRate;
+			final double rate = Math.max(state.successRate, 0.001D);
+			final int attempts = (int) Math.ceil(wanted / rate);
+			state.lastAttempts = Math.max(ModOptions.adaptiveMinAttempts,
+					Math.min(ModOptions.adaptiveMaxAttempts, attempts));
+			return state.lastAttempts;
+		}
+	}
+
+	/**
+	 * Records the outcome of decorating a chunk.
+	 */
+	public static void record(final int dimension, final int attempts, final int placed) {
+		if (attempts < 1)
+			return;
+		synchronized (states) {
+			final State state = getState(dimension);
+			final double rate = (double) placed / (double) attempts;
+			state.successRate += (rate - state.successRate) * ALPHA;
+			state.chunks++;
+		}
+	}
+
+	/**
+	 * Copy of the current per dimension state.
+	 */
+	@Nonnull
+	public static List<State> snapshot() {
+		synchronized (states) {
+			final List<State> result = new ArrayList<State>(states.size());
+			for (final State s : states.valueCollection()) {
+				final State copy = new State(s.dimension);
+				copy.successRate = s.successRate;
+				copy.chunks = s.chunks;
+				copy.lastAttempts = s.lastAttempts;
+				result.add(copy);
+			}
+			return result;
+		}
+	}
+
+	public static void reset() {
+		synchronized (states) {
+			states.clear();
+		}
+	}
+}
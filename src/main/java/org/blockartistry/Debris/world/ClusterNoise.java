@@ -0,0 +1,134 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.ModOptions;
+
+import net.minecraft.world.World;
+
+/**
+ * Low frequency 2D value noise over chunk coordinates used to cluster
+ * debris. Random values are laid out on a lattice with one point every
+ * REGION_SIZE chunks and smoothly interpolated in between. The per chunk
+ * factors of a region are computed together the first time any chunk in it
+ * is decorated and kept in a small LRU cache, so neighboring chunks, which
+ * tend to be decorated close together, only pay for an array read.
+ *
+ * The factor scales the number of debris attempts for a chunk. Noise of 0.5
+ * maps to a factor of 1 and the contrast setting stretches it from there;
+ * chunks whose factor drops to 0 are skipped without reading any blocks.
+ */
+public final class ClusterNoise {
+
+	public static final int REGION_SIZE = 4;
+	private static final int CACHE_SIZE = 1024;
+
+	private static final Map<Long, float[]> cache = new LinkedHashMap<Long, float[]>(CACHE_SIZE * 2, 0.75F, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(@Nonnull final Map.Entry<Long, float[]> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private static long cacheSeed;
+	private static float cacheContrast;
+
+	private ClusterNoise() {
+	}
+
+	/**
+	 * Scale factor for the number of debris attempts in a chunk.
+	 */
+	public static float getFactor(@Nonnull final World world, final int chunkX, final int chunkZ) {
+		return getFactor(world.getSeed(), world.provider.getDimension(), chunkX, chunkZ);
+	}
+
+	public static float getFactor(final long seed, final int dimension, final int chunkX, final int chunkZ) {
+		final int regionX = chunkX >> 2;
+		final int regionZ = chunkZ >> 2;
+		final long key = ((long) regionX & 0xFFFFFL) | (((long) regionZ & 0xFFFFFL) << 20)
+				| (((long) dimension & 0xFFFFFFL) << 40);
+
+		synchronized (cache) {
+			// Cached factors belong to one world seed and contrast
+			if (seed != cacheSeed || ModOptions.clusterContrast != cacheContrast) {
+				cache.clear();
+				cacheSeed = seed;
+				cacheContrast = ModOptions.clusterContrast;
+			}
+
+			float[] factors = cache.get(key);
+			if (factors == null) {
+				factors = computeRegion(seed ^ dimension * 0x5DEECE66DL, regionX, regionZ, cacheContrast);
+				cache.put(key, factors);
+			}
+			return factors[((chunkZ & 3) << 2) | (chunkX & 3)];
+		}
+	}
+
+	@Nonnull
+	private static float[] computeRegion(final long seed, final int regionX, final int regionZ,
+			final float contrast) {
+		final float n00 = lattice(seed, regionX, regionZ);
+		final float n10 = lattice(seed, regionX + 1, regionZ);
+		final float n01 = lattice(seed, regionX, regionZ + 1);
+		final float n11 = lattice(seed, regionX + 1, regionZ + 1);
+
+		final float[] factors = new float[REGION_SIZE * REGION_SIZE];
+		for (int z = 0; z < REGION_SIZE; z++) {
+			final float tz = smooth((z + 0.5F) / REGION_SIZE);
+			for (int x = 0; x < REGION_SIZE; x++) {
+				final float tx = smooth((x + 0.5F) / REGION_SIZE);
+				final float a = n00 + (n10 - n00) * tx;
+				final float b = n01 + (n11 - n01) * tx;
+				final float noise = a + (b - a) * tz;
+				factors[(z << 2) | x] = Math.max(0F, 1F + (noise - 0.5F) * contrast);
+			}
+		}
+		return factors;
+	}
+
+	private static float smooth(final float t) {
+		return t * t * (3F - 2F * t);
+	}
+
+	/**
+	 * Random value in [0, 1) for a lattice point.
+	 */
+	private static float lattice(final long seed, final int x, final int z) {
+		long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL);
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		h = h ^ (h >>> 31);
+		return (h >>> 40) / (float) (1 << 24);
+	}
+}
@@ -25,17 +25,14 @@
 package org.blockartistry.Debris.world;
 
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.blockartistry.Debris.ModOptions;
-import org.blockartistry.Debris.blocks.ModBlocks;
-import org.blockartistry.Debris.blocks.BlockDebrisVariant.Variant;
-import org.blockartistry.Debris.util.BlockStateWeightTable;
-import org.blockartistry.Debris.util.MyUtils;
-import org.blockartistry.Debris.util.WorldUtils;
+import org.blockartistry.Debris.util.SplittableRandomWrapper;
 
-import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
@@ -47,45 +44,12 @@ import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 
 public final class DebrisBiomeDecorator {
 
-	private static final int[] dimensionList = MyUtils.splitToInts(ModOptions.dimensionList, ',');
-	private static final boolean dimensionListBlack = ModOptions.dimensionListAsBlack;
-	private static final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
-
-	private static final int GROUND_ADJUST = 2;
-	private static final int MIN_Y = 5;
-	private static final int PLACE_ATTEMPTS = 2;
-
-	private static final BlockStateWeightTable trashBlocks = new BlockStateWeightTable();
-
-	static {
-		for (final Variant v : Variant.values())
-			trashBlocks.add(ModBlocks.DEBRIS.getBlockState(v), v.getWeight());
-	}
-
-	private IBlockState getTrashBlock(@Nonnull final Random rand) {
-		return trashBlocks.nextState(rand);
-	}
-
 	private DebrisBiomeDecorator() {
 	}
 
-	private static boolean isGenAllowedInDimension(final int dimension) {
-		boolean inList = false;
-		for (final int d : dimensionList) {
-			if (d == dimension) {
-				inList = true;
-				break;
-			}
-		}
-		if (dimensionListBlack)
-			return !inList;
-		return inList;
-	}
-
 	private static boolean isGenerationAllowed(final DecorateBiomeEvent.Decorate event) {
 		return (event.getResult() == Result.ALLOW || event.getResult() == Result.DEFAULT)
-				&& event.getType() == EventType.FLOWERS
-				&& isGenAllowedInDimension(event.getWorld().provider.getDimension());
+				&& event.getType() == EventType.FLOWERS;
 	}
 
 	@SubscribeEvent(priority = EventPriority.LOW)
@@ -96,40 +60,147 @@ public final class DebrisBiomeDecorator {
 			return;
 
 		if (isGenerationAllowed(event)) {
+			final World world = event.getWorld();
+			final BlockPos origin = event.getPos();
+			Retrogen.markGenerated(world, origin.getX() >> 4, origin.getZ() >> 4);
+			decorate(world, origin, ModOptions.chunkSeededRandom ? null : event.getRand(), false);
+		}
+	}
 
-			// Calculate the range and scaling based on
-			// the world sea level. Normal sea level is assumed
-			// to be 64, which is the Overworld sea level.
-			final int groundLevel = event.getWorld().provider.getAverageGroundLevel();
-			final int toPlace = (int) (ModOptions.rubbleDensity * ((float) groundLevel / 64F));
-			final int maxY = groundLevel - GROUND_ADJUST;
-			final int spread = maxY - MIN_Y;
+	/**
+	 * Places debris for the chunk whose corner is at origin. A null random
+	 * uses the chunk seeded one. Retrogen always runs on the calling thread
+	 * and in strict window mode since the chunks around an existing chunk may
+	 * not be loaded. Returns false if the decoration window was not
+	 * available and nothing was done.
+	 */
+	public static boolean decorate(@Nonnull final World world, @Nonnull final BlockPos origin,
+			@Nullable final Random random, final boolean retrogen) {
+
+		final int dimension = world.provider.getDimension();
+
+		// Same biome sample vanilla uses when populating the chunk
+		final DebrisProfile profile = DebrisProfiles.get().getProfile(dimension,
+				world.getBiome(origin.add(16, 0, 16)));
+		if (!profile.isEnabled())
+			return true;
+
+		final int groundLevel = world.provider.getAverageGroundLevel();
+		final int toPlace = getAttempts(profile, world.getSeed(), dimension, groundLevel, origin.getX() >> 4,
+				origin.getZ() >> 4);
+		final int maxY = profile.getMaxY(groundLevel);
+
+		// In case someone does something real funky with a
+		// dimension.
+		if (maxY - profile.getMinY() < 1 || toPlace < 1)
+			return true;
+
+		final int originX = origin.getX() + 8;
+		final int originZ = origin.getZ() + 8;
+
+		if (ModOptions.asyncPlanning && !retrogen)
+			return planAsync(world, origin, profile, originX, originZ, maxY, toPlace);
+
+		final Random rand = random != null ? random : getChunkRandom(world, origin);
+
+		// Resolve the section storage of the decoration window once
+		// rather than having each probe go through the World.
+		final DecorationRegion region = retrogen ? new DecorationRegion(world, origin, true)
+				: new DecorationRegion(world, origin);
+		if (!region.isComplete()) {
+			DecorationStats.chunksSkipped.incrementAndGet();
+			return false;
+		}
 
-			// In case someone does something real funky with a
-			// dimension.
-			if (spread < 1 || toPlace < 1)
-				return;
+		DecorationStats.chunksDecorated.incrementAndGet();
+		final int placed;
+		if (ModOptions.useFloorIndex)
+			placed = DebrisPlanner.placeFromIndex(region, rand, profile, originX, originZ, maxY, toPlace);
+		else
+			placed = DebrisPlanner.placeRandom(region, rand, profile, originX, originZ, maxY, toPlace);
+		region.finish();
+
+		if (AdaptiveAttempts.isEnabled())
+			AdaptiveAttempts.record(dimension, toPlace, placed);
+		return true;
+	}
 
-			final World world = event.getWorld();
-			final Random rand = event.getRand();
+	/**
+	 * Number of placement attempts to make in a chunk.
+	 */
+	public static int getAttempts(@Nonnull final DebrisProfile profile, final long seed, final int dimension,
+			final int groundLevel, final int chunkX, final int chunkZ) {
+		// Calculate the range and scaling based on
+		// the world sea level. Normal sea level is assumed
+		// to be 64, which is the Overworld sea level.
+		float density = profile.getDensity() * ((float) groundLevel / 64F);
+		if (ModOptions.clusterDebris)
+			density *= ClusterNoise.getFactor(seed, dimension, chunkX, chunkZ);
+		int attempts = (int) density;
+		if (attempts > 0 && AdaptiveAttempts.isEnabled())
+			attempts = AdaptiveAttempts.getAttempts(dimension, attempts);
+		return attempts;
+	}
 
-			for (int i = 0; i < toPlace; i++) {
+	/**
+	 * Captures the blocks placement can look at and hands the planning off to
+	 * a worker thread. The chunk seeded random is always used so the layout
+	 * does not depend on when the worker gets to it.
+	 */
+	private static boolean planAsync(@Nonnull final World world, @Nonnull final BlockPos origin,
+			@Nonnull final DebrisProfile profile, final int originX, final int originZ, final int maxY,
+			final int toPlace) {
+		final int chunkX = origin.getX() >> 4;
+		final int chunkZ = origin.getZ() >> 4;
+
+		// Neighbors still being planned can write into this window so they
+		// have to land before the snapshot is taken.
+		DecorationPipeline.flushOverlapping(world, chunkX, chunkZ);
+
+		final DecorationRegion region = new DecorationRegion(world, origin);
+		if (!region.isComplete()) {
+			DecorationStats.chunksSkipped.incrementAndGet();
+			return false;
+		}
 
-				final int x = event.getPos().getX() + rand.nextInt(16) + 8;
-				final int z = event.getPos().getZ() + rand.nextInt(16) + 8;
-				final int y = rand.nextInt(spread) + MIN_Y;
+		DecorationStats.chunksDecorated.incrementAndGet();
+		final DecorationSnapshot snapshot = new DecorationSnapshot(region, originX,
+				profile.getMinY() - DebrisPlanner.READ_BELOW, originZ, originX + 15, maxY + DebrisPlanner.READ_ABOVE,
+				originZ + 15);
+		final Random rand = getChunkRandom(world, origin);
+		final boolean useIndex = ModOptions.useFloorIndex;
+		final boolean adaptive = AdaptiveAttempts.isEnabled();
+		final int dimension = world.provider.getDimension();
+
+		DecorationPipeline.submit(world, chunkX, chunkZ, new Callable<PlacementPlan>() {
+			@Override
+			public PlacementPlan call() {
+				final int placed;
+				if (useIndex)
+					placed = DebrisPlanner.placeFromIndex(snapshot, rand, profile, originX, originZ, maxY, toPlace);
+				else
+					placed = DebrisPlanner.placeRandom(snapshot, rand, profile, originX, originZ, maxY, toPlace);
+				if (adaptive)
+					AdaptiveAttempts.record(dimension, toPlace, placed);
+				return snapshot.getPlan();
+			}
+		});
+		return true;
+	}
 
-				pos.setPos(x, y, z);
+	/**
+	 * Random that depends only on the world seed and the chunk being
+	 * decorated, so the same chunk gets the same debris no matter when or on
+	 * which thread it is decorated.
+	 */
+	@Nonnull
+	public static Random getChunkRandom(@Nonnull final World world, @Nonnull final BlockPos origin) {
+		return getChunkRandom(world.getSeed(), origin.getX() >> 4, origin.getZ() >> 4);
+	}
 
-				for (int j = 0; j < PLACE_ATTEMPTS; j++) {
-					if (WorldUtils.isAirBlock(world, pos) && ModBlocks.DEBRIS.canBlockStay(world, pos, null)) {
-						world.setBlockState(pos, getTrashBlock(rand));
-						break;
-					}
-					pos.setY(pos.getY() - 1);
-				}
-			}
-		}
+	@Nonnull
+	public static Random getChunkRandom(final long seed, final long chunkX, final long chunkZ) {
+		return new SplittableRandomWrapper(seed ^ (chunkX * 341873128712L + chunkZ * 132897987541L));
 	}
 
 	public static void init() {
@@ -0,0 +1,387 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Record of the debris placed in each chunk, kept with the chunk in its NBT
+ * so tools and commands can find generated debris without scanning blocks.
+ * An entry packs the position within the chunk into a short:
+ *
+ * (y << 8) | (z << 4) | x
+ *
+ * The variant meta of each entry is kept in a parallel array of nibbles,
+ * two entries to a byte, since it takes 4 more bits than a short has left.
+ * NBT has no short arrays so the entries are saved as a byte array of two
+ * bytes each, high byte first, with the meta nibbles in a second byte array.
+ * Journals saved as an int array with the meta in the low 4 bits are still
+ * read.
+ *
+ * Most chunks that load are never asked for their journal, so the arrays
+ * read from NBT are only decoded the first time an entry is looked at, and
+ * are saved back as they were if nothing was added.
+ *
+ * A journal is only complete for chunks that were generated while it was
+ * being kept, or that were cleared of debris since. Chunks generated before
+ * then can hold debris nobody recorded, so their journal is not enough to
+ * find all of it. Complete chunks carry a flag next to the journal.
+ */
+@Mod.EventBusSubscriber
+public final class DebrisJournal {
+
+	// Kept in the compound Retrogen uses for its marker
+	public static final String NBT_JOURNAL = "Journal";
+	public static final String NBT_META = "JournalMeta";
+	public static final String NBT_COMPLETE = "Complete";
+
+	/**
+	 * The entries of one chunk.
+	 */
+	public static final class Entries {
+
+		// Arrays as read from NBT, until the first access decodes them
+		private byte[] raw;
+		private byte[] rawMeta;
+		private int[] legacy;
+
+		private short[] data;
+		private byte[] meta;
+		private int size;
+
+		public Entries() {
+			this.data = new short[16];
+			this.meta = new byte[8];
+		}
+
+		private Entries(@Nonnull final byte[] raw, @Nullable final byte[] rawMeta) {
+			this.raw = raw;
+			this.rawMeta = rawMeta;
+			this.size = raw.length >> 1;
+		}
+
+		private Entries(@Nonnull final int[] legacy) {
+			this.legacy = legacy;
+			this.size = legacy.length;
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		public int get(final int i) {
+			decode();
+			return this.data[i] & 0xFFFF;
+		}
+
+		/**
+		 * Variant meta of the entry. Journals saved before the meta was kept
+		 * read as 0.
+		 */
+		public int getMeta(final int i) {
+			decode();
+			return (this.meta[i >> 1] >> ((i & 1) << 2)) & 15;
+		}
+
+		public void add(final int entry, final int meta) {
+			decode();
+			if (this.size == this.data.length) {
+				final int capacity = Math.max(16, this.size * 2);
+				this.data = Arrays.copyOf(this.data, capacity);
+				this.meta = Arrays.copyOf(this.meta, capacity >> 1);
+			}
+			final int idx = this.size >> 1;
+			final int shift = (this.size & 1) << 2;
+			this.meta[idx] = (byte) ((this.meta[idx] & ~(15 << shift)) | ((meta & 15) << shift));
+			this.data[this.size++] = (short) entry;
+		}
+
+		private void decode() {
+			if (this.data != null)
+				return;
+
+			this.data = new short[this.size];
+			this.meta = new byte[(this.size + 1) >> 1];
+			if (this.raw != null) {
+				for (int i = 0; i < this.size; i++)
+					this.data[i] = (short) (((this.raw[i << 1] & 0xFF) << 8) | (this.raw[(i << 1) + 1] & 0xFF));
+				if (this.rawMeta != null)
+					System.arraycopy(this.rawMeta, 0, this.meta, 0, Math.min(this.rawMeta.length, this.meta.length));
+			} else {
+				// Older form with the meta in the low 4 bits
+				for (int i = 0; i < this.size; i++) {
+					this.data[i] = (short) (this.legacy[i] >>> 4);
+					this.meta[i >> 1] |= (this.legacy[i] & 15) << ((i & 1) << 2);
+				}
+			}
+			this.raw = null;
+			this.rawMeta = null;
+			this.legacy = null;
+		}
+
+		private void write(@Nonnull final NBTTagCompound nbt) {
+			if (this.raw != null) {
+				// Never looked at, so it goes back as it came
+				nbt.setByteArray(NBT_JOURNAL, this.raw);
+				if (this.rawMeta != null)
+					nbt.setByteArray(NBT_META, this.rawMeta);
+				return;
+			}
+
+			decode();
+			final byte[] bytes = new byte[this.size << 1];
+			for (int i = 0; i < this.size; i++) {
+				bytes[i << 1] = (byte) (this.data[i] >> 8);
+				bytes[(i << 1) + 1] = (byte) this.data[i];
+			}
+			nbt.setByteArray(NBT_JOURNAL, bytes);
+			nbt.setByteArray(NBT_META, Arrays.copyOf(this.meta, (this.size + 1) >> 1));
+		}
+	}
+
+	private static final TIntObjectHashMap<TLongObjectHashMap<Entries>> worlds = new TIntObjectHashMap<TLongObjectHashMap<Entries>>();
+
+	// Loaded chunks whose journal holds all of their debris
+	private static final TIntObjectHashMap<TLongHashSet> complete = new TIntObjectHashMap<TLongHashSet>();
+
+	// Chunks read from disk that have not finished loading yet
+	private static final TIntObjectHashMap<TLongHashSet> fromDisk = new TIntObjectHashMap<TLongHashSet>();
+
+	private DebrisJournal() {
+	}
+
+	public static int pack(final int x, final int y, final int z) {
+		return ((y & 255) << 8) | ((z & 15) << 4) | (x & 15);
+	}
+
+	public static int getX(final int entry) {
+		return entry & 15;
+	}
+
+	public static int getY(final int entry) {
+		return (entry >> 8) & 255;
+	}
+
+	public static int getZ(final int entry) {
+		return (entry >> 4) & 15;
+	}
+
+	/**
+	 * Reads the entries saved in the compound, or null if there are none.
+	 * The arrays are not decoded until an entry is looked at.
+	 */
+	@Nullable
+	public static Entries read(@Nonnull final NBTTagCompound nbt) {
+		if (nbt.hasKey(NBT_JOURNAL, Constants.NBT.TAG_BYTE_ARRAY))
+			return new Entries(nbt.getByteArray(NBT_JOURNAL),
+					nbt.hasKey(NBT_META, Constants.NBT.TAG_BYTE_ARRAY) ? nbt.getByteArray(NBT_META) : null);
+		if (nbt.hasKey(NBT_JOURNAL, Constants.NBT.TAG_INT_ARRAY))
+			return new Entries(nbt.getIntArray(NBT_JOURNAL));
+		return null;
+	}
+
+	/**
+	 * Saves the entries into the compound.
+	 */
+	public static void write(@Nonnull final NBTTagCompound nbt, @Nonnull final Entries entries) {
+		entries.write(nbt);
+	}
+
+	/**
+	 * World position of an entry in the chunk.
+	 */
+	@Nonnull
+	public static BlockPos getPos(final int chunkX, final int chunkZ, final int entry) {
+		return new BlockPos((chunkX << 4) | getX(entry), getY(entry), (chunkZ << 4) | getZ(entry));
+	}
+
+	@Nonnull
+	private static TLongObjectHashMap<Entries> getChunks(@Nonnull final World world) {
+		final int dimension = world.provider.getDimension();
+		TLongObjectHashMap<Entries> chunks = worlds.get(dimension);
+		if (chunks == null) {
+			chunks = new TLongObjectHashMap<Entries>();
+			worlds.put(dimension, chunks);
+		}
+		return chunks;
+	}
+
+	@Nonnull
+	private static TLongHashSet getSet(@Nonnull final TIntObjectHashMap<TLongHashSet> sets,
+			@Nonnull final World world) {
+		final int dimension = world.provider.getDimension();
+		TLongHashSet chunks = sets.get(dimension);
+		if (chunks == null) {
+			chunks = new TLongHashSet();
+			sets.put(dimension, chunks);
+		}
+		return chunks;
+	}
+
+	@Nonnull
+	private static TLongHashSet getComplete(@Nonnull final World world) {
+		return getSet(complete, world);
+	}
+
+	/**
+	 * Indicates whether the journal of a loaded chunk holds all of the debris
+	 * in it.
+	 */
+	public static boolean isComplete(@Nonnull final World world, final int chunkX, final int chunkZ) {
+		return getComplete(world).contains(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Records that the loaded chunk has no debris other than what is in its
+	 * journal, such as after all of it was removed.
+	 */
+	public static void markComplete(@Nonnull final World world, @Nonnull final Chunk chunk) {
+		if (getComplete(world).add(ChunkPos.asLong(chunk.xPosition, chunk.zPosition)))
+			chunk.setChunkModified();
+	}
+
+	/**
+	 * Records debris placed at the position. Called on the server thread.
+	 * Only server worlds are journaled since nothing else saves chunks.
+	 */
+	public static void record(@Nonnull final World world, @Nonnull final BlockPos pos,
+			@Nonnull final IBlockState state) {
+		if (!(world instanceof WorldServer))
+			return;
+		final TLongObjectHashMap<Entries> chunks = getChunks(world);
+		final long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+		Entries entries = chunks.get(key);
+		if (entries == null) {
+			entries = new Entries();
+			chunks.put(key, entries);
+		}
+		entries.add(pack(pos.getX(), pos.getY(), pos.getZ()), state.getBlock().getMetaFromState(state));
+	}
+
+	/**
+	 * The entries of a loaded chunk, or null if no debris has been recorded
+	 * for it.
+	 */
+	@Nullable
+	public static Entries get(@Nonnull final World world, final int chunkX, final int chunkZ) {
+		return getChunks(world).get(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Forgets the entries of a loaded chunk.
+	 */
+	public static void clear(@Nonnull final World world, @Nonnull final Chunk chunk) {
+		if (getChunks(world).remove(ChunkPos.asLong(chunk.xPosition, chunk.zPosition)) != null)
+			chunk.setChunkModified();
+	}
+
+	@SubscribeEvent
+	public static void onChunkLoad(@Nonnull final ChunkDataEvent.Load event) {
+		final World world = event.getWorld();
+		if (world.isRemote)
+			return;
+
+		final Chunk chunk = event.getChunk();
+		final long key = ChunkPos.asLong(chunk.xPosition, chunk.zPosition);
+		getSet(fromDisk, world).add(key);
+
+		final NBTTagCompound nbt = event.getData().getCompoundTag(Retrogen.NBT_DEBRIS);
+		final Entries entries = read(nbt);
+		if (entries != null)
+			getChunks(world).put(key, entries);
+		if (nbt.getBoolean(NBT_COMPLETE))
+			getComplete(world).add(key);
+	}
+
+	@SubscribeEvent
+	public static void onChunkLoaded(@Nonnull final ChunkEvent.Load event) {
+		final World world = event.getWorld();
+		if (world.isRemote)
+			return;
+
+		// A chunk that did not come from disk was just generated, so all
+		// debris that goes into it is journaled.
+		final Chunk chunk = event.getChunk();
+		final long key = ChunkPos.asLong(chunk.xPosition, chunk.zPosition);
+		if (!getSet(fromDisk, world).remove(key))
+			getComplete(world).add(key);
+	}
+
+	@SubscribeEvent
+	public static void onChunkSave(@Nonnull final ChunkDataEvent.Save event) {
+		final World world = event.getWorld();
+		if (world.isRemote)
+			return;
+
+		final Chunk chunk = event.getChunk();
+		final TLongObjectHashMap<Entries> chunks = getChunks(world);
+		final long key = ChunkPos.asLong(chunk.xPosition, chunk.zPosition);
+		final Entries entries = chunks.get(key);
+		final boolean isComplete = getComplete(world).contains(key);
+		if ((entries != null && entries.size() > 0) || isComplete) {
+			final NBTTagCompound nbt = event.getData().getCompoundTag(Retrogen.NBT_DEBRIS);
+			if (entries != null && entries.size() > 0)
+				write(nbt, entries);
+			if (isComplete)
+				nbt.setBoolean(NBT_COMPLETE, true);
+			event.getData().setTag(Retrogen.NBT_DEBRIS, nbt);
+		}
+
+		// Final save before the chunk goes away
+		if (!chunk.isLoaded()) {
+			chunks.remove(key);
+			getComplete(world).remove(key);
+		}
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(@Nonnull final WorldEvent.Unload event) {
+		if (!event.getWorld().isRemote) {
+			worlds.remove(event.getWorld().provider.getDimension());
+			complete.remove(event.getWorld().provider.getDimension());
+			fromDisk.remove(event.getWorld().provider.getDimension());
+		}
+	}
+}
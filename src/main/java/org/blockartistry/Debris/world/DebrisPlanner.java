@@ -0,0 +1,118 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.blocks.ModBlocks;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * The debris placement rules. They only touch blocks through an
+ * IDecorationView so they produce the same results whether they run against
+ * the live world or against a snapshot of it.
+ */
+public final class DebrisPlanner {
+
+	public static final int MIN_Y = 5;
+	public static final int GROUND_ADJUST = 2;
+	public static final int PLACE_ATTEMPTS = 2;
+
+	// Lowest and highest Y, relative to the bottom and top of the range,
+	// that placement will read from.
+	public static final int READ_BELOW = PLACE_ATTEMPTS;
+	public static final int READ_ABOVE = 1;
+
+	// Scratch state is kept per thread since planning can run on workers
+	private static final ThreadLocal<FloorIndex> floorIndex = new ThreadLocal<FloorIndex>() {
+		@Override
+		protected FloorIndex initialValue() {
+			return new FloorIndex();
+		}
+	};
+
+	private DebrisPlanner() {
+	}
+
+	/**
+	 * Probes toPlace random positions in the 16x16 area between the profile
+	 * minimum Y and maxY, trying a couple of blocks downward from each, and
+	 * places debris at the first one that works. maxY must be greater than
+	 * the profile minimum. Returns the number of debris placed.
+	 */
+	public static int placeRandom(@Nonnull final IDecorationView view, @Nonnull final Random rand,
+			@Nonnull final DebrisProfile profile, final int originX, final int originZ, final int maxY,
+			final int toPlace) {
+		final int minY = profile.getMinY();
+		final int spread = maxY - minY;
+		final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		int placed = 0;
+		for (int i = 0; i < toPlace; i++) {
+
+			final int x = originX + rand.nextInt(16);
+			final int z = originZ + rand.nextInt(16);
+			final int y = rand.nextInt(spread) + minY;
+
+			pos.setPos(x, y, z);
+
+			for (int j = 0; j < PLACE_ATTEMPTS; j++) {
+				if (profile.isPlaceable(pos.getY()) && view.isAirBlock(pos)
+						&& ModBlocks.DEBRIS.canBlockStay(view, pos, null)) {
+					view.placeDebris(pos, profile.getVariants(pos.getY()).next(rand));
+					placed++;
+					break;
+				}
+				pos.setY(pos.getY() - 1);
+			}
+		}
+		return placed;
+	}
+
+	/**
+	 * Indexes every floor position in the 16x16 area and places up to
+	 * toPlace debris at positions drawn from the index. Returns the number of
+	 * debris placed.
+	 */
+	public static int placeFromIndex(@Nonnull final IDecorationView view, @Nonnull final Random rand,
+			@Nonnull final DebrisProfile profile, final int originX, final int originZ, final int maxY,
+			final int toPlace) {
+		// Same Y range that the random probes can reach
+		final FloorIndex index = floorIndex.get();
+		if (index.build(view, originX, originZ, profile.getMinY() - PLACE_ATTEMPTS + 1, maxY - 1,
+				profile.getBandMask()) == 0)
+			return 0;
+
+		final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		int placed = 0;
+		for (int i = 0; i < toPlace && index.next(rand, pos); i++) {
+			view.placeDebris(pos, profile.getVariants(pos.getY()).next(rand));
+			placed++;
+		}
+		return placed;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.util.CompiledWeightTable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+
+/**
+ * Resolved decoration settings for a dimension or a biome within a
+ * dimension. Immutable once compiled so it can be shared with planning
+ * threads.
+ *
+ * Variant weights can differ by depth. There is one table per 16 block band
+ * indexed by y >> 4; bands with identical weights share a table, and a band
+ * where every weight is 0 gets no debris. Disabled bands are resolved up
+ * front into a bit mask so the planner can exclude them from the candidate
+ * positions instead of checking the table for every placement.
+ */
+public final class DebrisProfile {
+
+	public static final int GROUND_RELATIVE = -1;
+	public static final int BAND_COUNT = 16;
+
+	// Stands in for the table of a disabled band so getVariants() never
+	// returns null
+	private static final CompiledWeightTable<IBlockState> NONE = new CompiledWeightTable<IBlockState>(
+			new int[] { 1 }, new Object[] { Blocks.AIR.getDefaultState() });
+
+	private final boolean enabled;
+	private final float density;
+	private final int minY;
+	private final int maxY;
+	private final CompiledWeightTable<IBlockState>[] bands;
+	private final int bandMask;
+
+	public DebrisProfile(final boolean enabled, final float density, final int minY, final int maxY,
+			@Nonnull final CompiledWeightTable<IBlockState>[] bands) {
+		assert bands.length == BAND_COUNT;
+
+		int mask = 0;
+		for (int i = 0; i < BAND_COUNT; i++) {
+			if (bands[i] != null)
+				mask |= 1 << i;
+			else
+				bands[i] = NONE;
+		}
+
+		this.enabled = enabled && mask != 0 && density > 0;
+		this.density = density;
+		this.minY = minY;
+		this.maxY = maxY;
+		this.bands = bands;
+		this.bandMask = mask;
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Debris attempts per chunk at an average ground level of 64.
+	 */
+	public float getDensity() {
+		return this.density;
+	}
+
+	public int getMinY() {
+		return this.minY;
+	}
+
+	/**
+	 * Highest Y debris is placed at in a dimension with the given average
+	 * ground level.
+	 */
+	public int getMaxY(final int groundLevel) {
+		return this.maxY == GROUND_RELATIVE ? groundLevel - DebrisPlanner.GROUND_ADJUST : this.maxY;
+	}
+
+	/**
+	 * Bit mask of the bands that get debris, bit n being the band y >> 4 == n.
+	 */
+	public int getBandMask() {
+		return this.bandMask;
+	}
+
+	/**
+	 * Whether debris is placed at the depth y. y must be within 0-255.
+	 */
+	public boolean isPlaceable(final int y) {
+		return ((this.bandMask >>> (y >> 4)) & 1) != 0;
+	}
+
+	/**
+	 * Variant table for the band containing y. Only meaningful where
+	 * isPlaceable(y) holds. y must be within 0-255.
+	 */
+	@Nonnull
+	public CompiledWeightTable<IBlockState> getVariants(final int y) {
+		return this.bands[y >> 4];
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.Debris;
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.ModOptions;
+import org.blockartistry.Debris.blocks.BlockDebrisVariant.Variant;
+import org.blockartistry.Debris.blocks.ModBlocks;
+import org.blockartistry.Debris.data.ProfileConfig;
+import org.blockartistry.Debris.util.BlockStateWeightTable;
+import org.blockartistry.Debris.util.CompiledWeightTable;
+import org.blockartistry.Debris.util.MyUtils;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.biome.Biome;
+
+/**
+ * Compiled debris profiles. The mod configuration and the optional profile
+ * file are resolved once into a map from dimension id to a table of
+ * profiles indexed by biome id, so looking up the profile for a chunk being
+ * decorated is a hash lookup and an array index with nothing to parse or
+ * merge.
+ */
+public final class DebrisProfiles {
+
+	private static final int BIOME_COUNT = 256;
+
+	private static volatile DebrisProfiles current;
+
+	// Dimensions that are not in the map use the defaults
+	private final TIntObjectHashMap<DebrisProfile[]> dimensions = new TIntObjectHashMap<DebrisProfile[]>();
+	private final DebrisProfile[] defaults;
+
+	// Settings being resolved while compiling
+	private static final class Resolved {
+		public boolean enabled;
+		public float density;
+		public int minY;
+		public int maxY;
+		// Variant weights for each band
+		public final int[][] weights = new int[DebrisProfile.BAND_COUNT][];
+
+		public Resolved() {
+			for (int i = 0; i < this.weights.length; i++)
+				this.weights[i] = new int[Variant.values().length];
+		}
+
+		public Resolved(@Nonnull final Resolved parent) {
+			this.enabled = parent.enabled;
+			this.density = parent.density;
+			this.minY = parent.minY;
+			this.maxY = parent.maxY;
+			for (int i = 0; i < this.weights.length; i++)
+				this.weights[i] = Arrays.copyOf(parent.weights[i], parent.weights[i].length);
+		}
+
+		private static void applyVariants(@Nonnull final Map<String, Integer> variants, @Nonnull final int[][] weights,
+				final int firstBand, final int lastBand) {
+			for (final Map.Entry<String, Integer> e : variants.entrySet()) {
+				final Variant v = findVariant(e.getKey());
+				if (v == null)
+					ModLog.warn("Unknown debris variant [%s] in profile", e.getKey());
+				else if (e.getValue() != null)
+					for (int b = firstBand; b <= lastBand; b++)
+						weights[b][v.ordinal()] = Math.max(e.getValue(), 0);
+			}
+		}
+
+		@Nonnull
+		public Resolved apply(@Nullable final ProfileConfig.Settings settings) {
+			if (settings == null)
+				return this;
+			if (settings.enabled != null)
+				this.enabled = settings.enabled;
+			if (settings.density != null)
+				this.density = Math.max(settings.density, 0F);
+			// Probes and the floor scan reach PLACE_ATTEMPTS - 1 blocks below
+			// minY and must not go below y = 1
+			if (settings.minY != null)
+				this.minY = Math.max(settings.minY, DebrisPlanner.PLACE_ATTEMPTS);
+			if (settings.maxY != null)
+				this.maxY = settings.maxY < 0 ? DebrisProfile.GROUND_RELATIVE : Math.min(settings.maxY, 255);
+			if (settings.variants != null)
+				applyVariants(settings.variants, this.weights, 0, DebrisProfile.BAND_COUNT - 1);
+			if (settings.bands != null) {
+				for (final ProfileConfig.Band band : settings.bands) {
+					if (band.variants == null)
+						continue;
+					final int first = Math.max(band.minY, 0) >> 4;
+					final int last = Math.min(band.maxY, 255) >> 4;
+					applyVariants(band.variants, this.weights, first, last);
+				}
+			}
+			return this;
+		}
+
+		@Nullable
+		private static CompiledWeightTable<IBlockState> compile(@Nonnull final int[] weights) {
+			final BlockStateWeightTable table = new BlockStateWeightTable();
+			for (final Variant v : Variant.values())
+				if (weights[v.ordinal()] > 0)
+					table.add(ModBlocks.DEBRIS.getBlockState(v), weights[v.ordinal()]);
+			return table.getTotalWeight() > 0 ? table.freeze() : null;
+		}
+
+		@Nonnull
+		public DebrisProfile compile() {
+			@SuppressWarnings("unchecked")
+			final CompiledWeightTable<IBlockState>[] bands = new CompiledWeightTable[DebrisProfile.BAND_COUNT];
+			for (int i = 0; i < bands.length; i++) {
+				// Adjacent bands usually match so share the table
+				if (i > 0 && Arrays.equals(this.weights[i], this.weights[i - 1]))
+					bands[i] = bands[i - 1];
+				else
+					bands[i] = compile(this.weights[i]);
+			}
+			return new DebrisProfile(this.enabled, this.density, this.minY, this.maxY, bands);
+		}
+	}
+
+	private DebrisProfiles(@Nonnull final Resolved base, @Nullable final ProfileConfig config) {
+		final Resolved defaults = new Resolved(base);
+		if (config != null)
+			defaults.apply(config.defaults);
+		this.defaults = fill(defaults.compile());
+
+		// Dimensions from the configured list act as if they had an entry in
+		// the file that only sets enabled.
+		final int[] listed = MyUtils.splitToInts(ModOptions.dimensionList, ',');
+		for (final int d : listed) {
+			final Resolved dim = new Resolved(defaults);
+			dim.enabled = !ModOptions.dimensionListAsBlack;
+			this.dimensions.put(d, fill(dim.compile()));
+		}
+
+		if (config == null || config.dimensions == null)
+			return;
+
+		for (final ProfileConfig.Dimension dc : config.dimensions) {
+			final Resolved dim = new Resolved(defaults);
+			dim.enabled = isListed(listed, dc.dimension) ? !ModOptions.dimensionListAsBlack : defaults.enabled;
+			dim.apply(dc);
+
+			final DebrisProfile[] profiles = fill(dim.compile());
+			if (dc.biomes != null) {
+				for (final ProfileConfig.Biome bc : dc.biomes) {
+					final Biome biome = bc.biome == null ? null : Biome.REGISTRY.getObject(new ResourceLocation(bc.biome));
+					if (biome == null) {
+						ModLog.warn("Unknown biome [%s] in profile for dimension %d", bc.biome, dc.dimension);
+						continue;
+					}
+					final int id = Biome.getIdForBiome(biome);
+					if (id >= 0 && id < BIOME_COUNT)
+						profiles[id] = new Resolved(dim).apply(bc).compile();
+				}
+			}
+			this.dimensions.put(dc.dimension, profiles);
+		}
+	}
+
+	private static boolean isListed(@Nonnull final int[] list, final int dimension) {
+		for (final int d : list)
+			if (d == dimension)
+				return true;
+		return false;
+	}
+
+	@Nonnull
+	private static DebrisProfile[] fill(@Nonnull final DebrisProfile profile) {
+		final DebrisProfile[] result = new DebrisProfile[BIOME_COUNT];
+		Arrays.fill(result, profile);
+		return result;
+	}
+
+	@Nullable
+	private static Variant findVariant(@Nonnull final String name) {
+		for (final Variant v : Variant.values())
+			if (v.getName().equalsIgnoreCase(name))
+				return v;
+		return null;
+	}
+
+	/**
+	 * Profile for a biome in a dimension.
+	 */
+	@Nonnull
+	public DebrisProfile getProfile(final int dimension, @Nonnull final Biome biome) {
+		DebrisProfile[] profiles = this.dimensions.get(dimension);
+		if (profiles == null)
+			profiles = this.defaults;
+		final int id = Biome.getIdForBiome(biome);
+		return id >= 0 && id < BIOME_COUNT ? profiles[id] : profiles[0];
+	}
+
+	/**
+	 * The current compiled profiles, compiling them if needed.
+	 */
+	@Nonnull
+	public static DebrisProfiles get() {
+		DebrisProfiles result = current;
+		if (result == null)
+			result = load();
+		return result;
+	}
+
+	/**
+	 * Compiles the profiles from the mod configuration and the profile file
+	 * in the mod's data directory.
+	 */
+	@Nonnull
+	public static synchronized DebrisProfiles load() {
+		final Resolved base = new Resolved();
+		base.enabled = ModOptions.dimensionListAsBlack;
+		base.density = ModOptions.rubbleDensity;
+		base.minY = DebrisPlanner.MIN_Y;
+		base.maxY = DebrisProfile.GROUND_RELATIVE;
+		for (final int[] band : base.weights)
+			for (final Variant v : Variant.values())
+				band[v.ordinal()] = v.getWeight();
+
+		ProfileConfig config = null;
+		final File dir = Debris.dataDirectory();
+		if (dir != null && !ModOptions.profileFile.isEmpty()) {
+			final File file = new File(dir, ModOptions.profileFile);
+			config = ProfileConfig.load(file);
+			if (config != null)
+				ModLog.info("Loaded debris profiles from [%s]", file.toString());
+		}
+
+		current = new DebrisProfiles(base, config);
+		return current;
+	}
+}
@@ -0,0 +1,368 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.ModOptions;
+import org.blockartistry.Debris.blocks.BlockDebris;
+import org.blockartistry.Debris.util.Localization;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.list.array.TShortArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.init.Blocks;
+import net.minecraft.network.play.server.SPacketMultiBlockChange;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.BlockStatePaletteHashMap;
+import net.minecraft.world.chunk.BlockStatePaletteLinear;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+/**
+ * Removes debris from an area of a world, and optionally places it again
+ * with the current configuration. Jobs are worked at the end of each server
+ * tick within the configured time budget.
+ *
+ * Chunks whose DebrisJournal is complete only have their journaled
+ * positions looked at. Others, including chunks generated before the
+ * journal was kept, are scanned a section at a time, skipping empty ones
+ * and ones whose block state palette has no debris in it, and are marked
+ * complete once clean. Removed blocks are written straight
+ * into the sections and go out to watching players as one
+ * SPacketMultiBlockChange per chunk rather than a block update each.
+ *
+ * Chunks that are not loaded are read from disk for a step of the job and
+ * queued to unload as soon as that step is done, so a large area never has
+ * more than a few extra chunks loaded at a time. Chunks that have never
+ * been generated are left alone. Regeneration decorates each chunk of the
+ * area again once all of it has been purged, so debris from the chunks on
+ * the edge can spill one chunk past it the same way it does during
+ * generation.
+ */
+@Mod.EventBusSubscriber
+public final class DebrisPurge {
+
+	private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+
+	// How often progress is reported to whoever started a job
+	private static final long REPORT_INTERVAL = 5000000000L;
+
+	// The block state palette of a section and the states held by the two
+	// palettes that are local to a section. Not exposed by the storage so
+	// they are pulled via reflection. If they cannot be found every section
+	// is scanned.
+	private static final Field PALETTE;
+	private static final Field LINEAR_STATES;
+	private static final Field HASH_MAP_STATES;
+
+	static {
+		Field palette = null;
+		Field linear = null;
+		Field hashMap = null;
+		try {
+			palette = ReflectionHelper.findField(BlockStateContainer.class, "palette", "field_186022_c");
+			linear = ReflectionHelper.findField(BlockStatePaletteLinear.class, "states", "field_186042_a");
+			hashMap = ReflectionHelper.findField(BlockStatePaletteHashMap.class, "statePaletteMap",
+					"field_186046_a");
+		} catch (@Nonnull final Throwable t) {
+			ModLog.warn("Unable to locate the section palettes; purge will scan every section");
+			palette = null;
+		}
+		PALETTE = palette;
+		LINEAR_STATES = linear;
+		HASH_MAP_STATES = hashMap;
+	}
+
+	private static final class Job {
+		public final int dimension;
+		public final boolean regen;
+		public final ICommandSender sender;
+		public final TLongArrayList chunks;
+		// Chunks read from disk for the current step
+		public final TLongArrayList loaded = new TLongArrayList();
+		public boolean decorating;
+		public int next;
+		public int removed;
+		public int decorated;
+		public long lastReport = System.nanoTime();
+
+		public Job(final int dimension, final boolean regen, @Nonnull final ICommandSender sender,
+				@Nonnull final TLongArrayList chunks) {
+			this.dimension = dimension;
+			this.regen = regen;
+			this.sender = sender;
+			this.chunks = chunks;
+		}
+	}
+
+	private static final ArrayDeque<Job> jobs = new ArrayDeque<Job>();
+
+	private DebrisPurge() {
+	}
+
+	/**
+	 * Chunks of a job, built up from rectangles that may overlap.
+	 */
+	public static final class Area {
+		private final TLongArrayList chunks = new TLongArrayList();
+		private final TLongHashSet seen = new TLongHashSet();
+
+		/**
+		 * Adds the chunks in the rectangle from minimum to maximum, inclusive.
+		 */
+		@Nonnull
+		public Area add(final int minChunkX, final int minChunkZ, final int maxChunkX, final int maxChunkZ) {
+			for (int x = minChunkX; x <= maxChunkX; x++)
+				for (int z = minChunkZ; z <= maxChunkZ; z++) {
+					final long key = ChunkPos.asLong(x, z);
+					if (this.seen.add(key))
+						this.chunks.add(key);
+				}
+			return this;
+		}
+	}
+
+	/**
+	 * Queues a job for the chunks of the area. Returns the number of chunks in
+	 * the job.
+	 */
+	public static int start(@Nonnull final WorldServer world, @Nonnull final ICommandSender sender,
+			@Nonnull final Area area, final boolean regen) {
+		jobs.add(new Job(world.provider.getDimension(), regen, sender, area.chunks));
+		return area.chunks.size();
+	}
+
+	public static void reset() {
+		jobs.clear();
+	}
+
+	@SubscribeEvent
+	public static void onServerTick(@Nonnull final TickEvent.ServerTickEvent event) {
+		if (event.phase != TickEvent.Phase.END || jobs.isEmpty())
+			return;
+
+		final long deadline = System.nanoTime() + ModOptions.commandBudget * 1000000L;
+		while (!jobs.isEmpty() && System.nanoTime() < deadline) {
+			final Job job = jobs.peek();
+			final WorldServer world = DimensionManager.getWorld(job.dimension);
+			if (world == null || process(world, job, deadline)) {
+				jobs.poll();
+				finish(job);
+			}
+		}
+	}
+
+	/**
+	 * Works on the job until it is done or the deadline passes. Returns true
+	 * when the job is done.
+	 */
+	private static boolean process(@Nonnull final WorldServer world, @Nonnull final Job job, final long deadline) {
+		while (System.nanoTime() < deadline) {
+			if (job.next == job.chunks.size()) {
+				if (!job.regen || job.decorating)
+					return true;
+				job.decorating = true;
+				job.next = 0;
+			}
+
+			final long key = job.chunks.get(job.next++);
+			final int chunkX = (int) key;
+			final int chunkZ = (int) (key >> 32);
+			final Chunk chunk = load(world, job, chunkX, chunkZ);
+			if (chunk == null)
+				continue;
+
+			try {
+				step(world, job, chunk);
+			} finally {
+				release(world, job);
+			}
+
+			if (System.nanoTime() - job.lastReport > REPORT_INTERVAL) {
+				job.lastReport = System.nanoTime();
+				final int done = job.next + (job.decorating ? job.chunks.size() : 0);
+				final int total = job.chunks.size() * (job.regen ? 2 : 1);
+				send(job, "msg.Command.PurgeProgress.debris", done * 100 / total, job.removed, job.decorated);
+			}
+		}
+		return false;
+	}
+
+	private static void step(@Nonnull final WorldServer world, @Nonnull final Job job, @Nonnull final Chunk chunk) {
+		final int chunkX = chunk.xPosition;
+		final int chunkZ = chunk.zPosition;
+		if (job.decorating) {
+			// The window reaches one chunk past the area on the far sides
+			if (load(world, job, chunkX + 1, chunkZ) != null && load(world, job, chunkX, chunkZ + 1) != null
+					&& load(world, job, chunkX + 1, chunkZ + 1) != null
+					&& DebrisBiomeDecorator.decorate(world, new BlockPos(chunkX << 4, 0, chunkZ << 4), null, true)) {
+				Retrogen.markGenerated(world, chunkX, chunkZ);
+				chunk.setChunkModified();
+				job.decorated++;
+			}
+		} else {
+			job.removed += purge(world, chunk);
+		}
+	}
+
+	/**
+	 * Queues the chunks read from disk for the last step to be saved and
+	 * unloaded. Asking for one of them again before the world gets to it
+	 * takes it off the queue.
+	 */
+	private static void release(@Nonnull final WorldServer world, @Nonnull final Job job) {
+		for (int i = 0; i < job.loaded.size(); i++) {
+			final long key = job.loaded.get(i);
+			final Chunk chunk = world.getChunkProvider().getLoadedChunk((int) key, (int) (key >> 32));
+			if (chunk != null)
+				world.getChunkProvider().unload(chunk);
+		}
+		job.loaded.clear();
+	}
+
+	@Nullable
+	private static Chunk load(@Nonnull final WorldServer world, @Nonnull final Job job, final int chunkX,
+			final int chunkZ) {
+		Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+		if (chunk == null) {
+			// Reads the chunk from disk but never generates it
+			chunk = world.getChunkProvider().loadChunk(chunkX, chunkZ);
+			if (chunk != null)
+				job.loaded.add(ChunkPos.asLong(chunkX, chunkZ));
+		}
+		return chunk;
+	}
+
+	/**
+	 * Removes the debris from the chunk and tells watching players. Returns
+	 * the number of blocks removed.
+	 */
+	private static int purge(@Nonnull final WorldServer world, @Nonnull final Chunk chunk) {
+		final TShortArrayList changes = new TShortArrayList();
+		final ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+
+		if (DebrisJournal.isComplete(world, chunk.xPosition, chunk.zPosition)) {
+			final DebrisJournal.Entries entries = DebrisJournal.get(world, chunk.xPosition, chunk.zPosition);
+			for (int i = 0; entries != null && i < entries.size(); i++) {
+				final int entry = entries.get(i);
+				remove(sections, DebrisJournal.getX(entry), DebrisJournal.getY(entry), DebrisJournal.getZ(entry),
+						changes);
+			}
+		} else {
+			for (int s = 0; s < sections.length; s++) {
+				final ExtendedBlockStorage section = sections[s];
+				if (section == Chunk.NULL_BLOCK_STORAGE || section.isEmpty() || !mayHoldDebris(section))
+					continue;
+				for (int y = 0; y < 16; y++)
+					for (int z = 0; z < 16; z++)
+						for (int x = 0; x < 16; x++)
+							remove(sections, x, (s << 4) | y, z, changes);
+			}
+			// Nothing left that the journal does not know about
+			DebrisJournal.markComplete(world, chunk);
+		}
+
+		DebrisJournal.clear(world, chunk);
+		if (changes.isEmpty())
+			return 0;
+
+		chunk.setChunkModified();
+		final PlayerChunkMapEntry watchers = world.getPlayerChunkMap().getEntry(chunk.xPosition, chunk.zPosition);
+		if (watchers != null)
+			watchers.sendPacket(new SPacketMultiBlockChange(changes.size(), changes.toArray(), chunk));
+		return changes.size();
+	}
+
+	/**
+	 * Indicates whether the section's palette has a debris state. A section
+	 * using the global palette, or whose palette cannot be read, may hold
+	 * anything.
+	 */
+	private static boolean mayHoldDebris(@Nonnull final ExtendedBlockStorage section) {
+		if (PALETTE == null)
+			return true;
+		try {
+			final Object palette = PALETTE.get(section.getData());
+			if (palette instanceof BlockStatePaletteLinear) {
+				for (final IBlockState state : (IBlockState[]) LINEAR_STATES.get(palette))
+					if (state != null && state.getBlock() instanceof BlockDebris)
+						return true;
+				return false;
+			}
+			if (palette instanceof BlockStatePaletteHashMap) {
+				@SuppressWarnings("unchecked")
+				final Iterable<IBlockState> states = (Iterable<IBlockState>) HASH_MAP_STATES.get(palette);
+				for (final IBlockState state : states)
+					if (state.getBlock() instanceof BlockDebris)
+						return true;
+				return false;
+			}
+		} catch (@Nonnull final Throwable t) {
+			return true;
+		}
+		// Global palette
+		return true;
+	}
+
+	private static void remove(@Nonnull final ExtendedBlockStorage[] sections, final int x, final int y, final int z,
+			@Nonnull final TShortArrayList changes) {
+		final ExtendedBlockStorage section = sections[y >> 4];
+		if (section == Chunk.NULL_BLOCK_STORAGE || !(section.get(x, y & 15, z).getBlock() instanceof BlockDebris))
+			return;
+
+		// Debris neither blocks nor gives off light, so taking it out leaves
+		// the light and height maps as they are.
+		section.set(x, y & 15, z, AIR);
+		changes.add((short) ((x << 12) | (z << 8) | y));
+	}
+
+	private static void finish(@Nonnull final Job job) {
+		send(job, "msg.Command.PurgeDone.debris", job.chunks.size(), job.removed, job.decorated);
+	}
+
+	private static void send(@Nonnull final Job job, @Nonnull final String key, @Nonnull final Object... parms) {
+		final String msg = Localization.format(key, parms);
+		ModLog.info(msg);
+		job.sender.addChatMessage(new TextComponentString(msg));
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.ModOptions;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Writes debris blocks into the world. By default this is a plain
+ * setBlockState(). When direct writes are enabled the state is stored
+ * straight into the chunk section, skipping neighbor notification and the
+ * per block light and height map updates. Those are only needed when the
+ * new state changes opacity or light level; such positions are remembered
+ * by chunk and fixed up in finish() with one pass over each chunk: the
+ * height and sky maps are regenerated once, and each position is relit only
+ * for the light types the change can affect.
+ *
+ * Debris is transparent and gives off no light so normally finish() has
+ * nothing to do.
+ */
+public class DebrisWriter {
+
+	protected final World world;
+	protected final boolean direct;
+
+	/**
+	 * Light fixes a chunk needs after direct writes.
+	 */
+	protected static final class Relight {
+		public final Chunk chunk;
+		// Opacity changed, so the height and sky maps are stale
+		public final TLongHashSet opacity = new TLongHashSet();
+		// Opacity or light value changed
+		public final TLongHashSet block = new TLongHashSet();
+
+		public Relight(@Nonnull final Chunk chunk) {
+			this.chunk = chunk;
+		}
+	}
+
+	// Allocated the first time a write needs a light fix
+	protected List<Relight> relight;
+
+	public DebrisWriter(@Nonnull final World world) {
+		this(world, ModOptions.directWrites);
+	}
+
+	public DebrisWriter(@Nonnull final World world, final boolean direct) {
+		this.world = world;
+		this.direct = direct;
+	}
+
+	/**
+	 * Writes the state at the position. The chunk must be the one that
+	 * contains the position.
+	 */
+	public void write(@Nonnull final Chunk chunk, @Nonnull final BlockPos pos, @Nonnull final IBlockState state) {
+		if (!this.direct) {
+			this.world.setBlockState(pos, state);
+			return;
+		}
+
+		// An empty section has to be created and tracked by the chunk, so
+		// let the world do it. No neighbor updates to match the fast path.
+		final ExtendedBlockStorage section = chunk.getBlockStorageArray()[pos.getY() >> 4];
+		if (section == Chunk.NULL_BLOCK_STORAGE) {
+			this.world.setBlockState(pos, state, 2);
+			return;
+		}
+
+		final int x = pos.getX() & 15;
+		final int y = pos.getY() & 15;
+		final int z = pos.getZ() & 15;
+		final IBlockState old = section.get(x, y, z);
+		if (old == state)
+			return;
+
+		section.set(x, y, z, state);
+		chunk.setChunkModified();
+
+		if (old.getLightOpacity() != state.getLightOpacity()) {
+			final Relight relight = getRelight(chunk);
+			relight.opacity.add(pos.toLong());
+			relight.block.add(pos.toLong());
+		} else if (old.getLightValue() != state.getLightValue()) {
+			getRelight(chunk).block.add(pos.toLong());
+		}
+
+		// Only does anything if a player is already watching the chunk
+		this.world.notifyBlockUpdate(pos, old, state, 2);
+	}
+
+	@Nonnull
+	private Relight getRelight(@Nonnull final Chunk chunk) {
+		if (this.relight == null)
+			this.relight = new ArrayList<Relight>(4);
+		// Writes come a chunk at a time so the last one is nearly always it
+		for (int i = this.relight.size() - 1; i >= 0; i--)
+			if (this.relight.get(i).chunk == chunk)
+				return this.relight.get(i);
+		final Relight relight = new Relight(chunk);
+		this.relight.add(relight);
+		return relight;
+	}
+
+	/**
+	 * Brings height maps and lighting up to date for the writes made since
+	 * the last call, one chunk at a time.
+	 */
+	public void finish() {
+		if (this.relight == null || this.relight.isEmpty())
+			return;
+
+		final boolean sky = !this.world.provider.getHasNoSky();
+		for (final Relight relight : this.relight) {
+			if (!relight.opacity.isEmpty()) {
+				relight.chunk.generateSkylightMap();
+				if (sky) {
+					final TLongIterator itr = relight.opacity.iterator();
+					while (itr.hasNext())
+						this.world.checkLightFor(EnumSkyBlock.SKY, BlockPos.fromLong(itr.next()));
+				}
+			}
+			final TLongIterator itr = relight.block.iterator();
+			while (itr.hasNext())
+				this.world.checkLightFor(EnumSkyBlock.BLOCK, BlockPos.fromLong(itr.next()));
+		}
+		this.relight.clear();
+	}
+}
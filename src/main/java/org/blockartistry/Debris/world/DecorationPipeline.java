@@ -0,0 +1,234 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.ModOptions;
+
+import com.google.common.collect.ImmutableList;
+
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.event.terraingen.PopulateChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Runs debris placement planning on worker threads. Decoration captures a
+ * snapshot and hands the planning off; the plan is written to the world on
+ * the server thread when population of the chunk posts
+ * PopulateChunkEvent.Post, so the worker has the rest of the biome
+ * decoration to finish in. That is before other mods' world generators run
+ * and before any other chunk is populated. Plans for chunk generators that
+ * never post the event are applied at the end of the tick.
+ *
+ * A plan that is still pending when a chunk next to it is decorated is
+ * finished and applied first, so every snapshot sees the debris of the
+ * chunks decorated before it just as the synchronous path would.
+ *
+ * The result is not always identical to the synchronous path. The vanilla
+ * decoration that follows the debris step within the same chunk, such as
+ * mushrooms, reeds and liquid springs, runs before the plan is applied
+ * rather than after it. A planned position that one of those took is
+ * dropped when the plan is checked against the world, and counted in
+ * DecorationStats.planDropped.
+ *
+ * Plans still pending when a world saves or unloads are applied and the
+ * chunks they touched are saved again so the debris is not lost.
+ */
+@Mod.EventBusSubscriber
+public final class DecorationPipeline {
+
+	private static final class Pending {
+		public final World world;
+		public final int chunkX;
+		public final int chunkZ;
+		public final Future<PlacementPlan> plan;
+
+		public Pending(@Nonnull final World world, final int chunkX, final int chunkZ,
+				@Nonnull final Future<PlacementPlan> plan) {
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.plan = plan;
+		}
+
+		public boolean overlaps(@Nonnull final World world, final int chunkX, final int chunkZ) {
+			return this.world == world && Math.abs(this.chunkX - chunkX) <= 1 && Math.abs(this.chunkZ - chunkZ) <= 1;
+		}
+	}
+
+	private static final int TAKE_OVERLAPPING = 0;
+	private static final int TAKE_CHUNK = 1;
+	private static final int TAKE_ALL = 2;
+
+	private static final List<Pending> pending = new ArrayList<Pending>();
+	private static ExecutorService executor;
+
+	private DecorationPipeline() {
+	}
+
+	@Nonnull
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			int threads = ModOptions.planningThreads;
+			if (threads < 1)
+				threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(@Nonnull final Runnable r) {
+					final Thread t = new Thread(r, "Debris Planner #" + this.count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			ModLog.info("Debris placement planning using %d thread(s)", threads);
+		}
+		return executor;
+	}
+
+	private static void apply(@Nonnull final Pending p) {
+		try {
+			p.plan.get().apply(p.world);
+		} catch (@Nonnull final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (@Nonnull final ExecutionException e) {
+			ModLog.error("Debris placement planning failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Queues planning for a chunk. Call flushOverlapping() for the chunk
+	 * before capturing the snapshot the task works from.
+	 */
+	public static void submit(@Nonnull final World world, final int chunkX, final int chunkZ,
+			@Nonnull final Callable<PlacementPlan> task) {
+		synchronized (pending) {
+			pending.add(new Pending(world, chunkX, chunkZ, getExecutor().submit(task)));
+		}
+	}
+
+	/**
+	 * Removes the matching plans from the pending list, in submission order.
+	 * Applying happens outside of the lock since writing to the world can
+	 * cause other chunks to be decorated.
+	 */
+	@Nonnull
+	private static List<Pending> take(@Nullable final World world, final int chunkX, final int chunkZ,
+			final int mode) {
+		synchronized (pending) {
+			if (pending.isEmpty())
+				return ImmutableList.of();
+
+			final List<Pending> result = new ArrayList<Pending>();
+			final Iterator<Pending> itr = pending.iterator();
+			while (itr.hasNext()) {
+				final Pending p = itr.next();
+				final boolean match;
+				if (mode == TAKE_ALL)
+					match = world == null || p.world == world;
+				else if (mode == TAKE_CHUNK)
+					match = p.world == world && p.chunkX == chunkX && p.chunkZ == chunkZ;
+				else
+					match = p.overlaps(world, chunkX, chunkZ);
+				if (match) {
+					itr.remove();
+					result.add(p);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Finishes and applies any pending plans whose decoration window overlaps
+	 * that of the chunk.
+	 */
+	public static void flushOverlapping(@Nonnull final World world, final int chunkX, final int chunkZ) {
+		for (final Pending p : take(world, chunkX, chunkZ, TAKE_OVERLAPPING))
+			apply(p);
+	}
+
+	/**
+	 * Finishes and applies all pending plans for the world, or for all worlds
+	 * if world is null. Returns the number of plans applied.
+	 */
+	public static int flush(@Nullable final World world) {
+		final List<Pending> plans = take(world, 0, 0, TAKE_ALL);
+		for (final Pending p : plans)
+			apply(p);
+		return plans.size();
+	}
+
+	/**
+	 * Applies the pending plans of a world and saves the chunks they changed.
+	 * The world's own save has already written its chunks by the time either
+	 * event is posted.
+	 */
+	private static void flushAndSave(@Nonnull final World world) {
+		if (flush(world) > 0 && world instanceof WorldServer)
+			((WorldServer) world).getChunkProvider().saveChunks(true);
+	}
+
+	@SubscribeEvent
+	public static void onPopulatePost(@Nonnull final PopulateChunkEvent.Post event) {
+		for (final Pending p : take(event.getWorld(), event.getChunkX(), event.getChunkZ(), TAKE_CHUNK))
+			apply(p);
+	}
+
+	@SubscribeEvent
+	public static void onServerTick(@Nonnull final TickEvent.ServerTickEvent event) {
+		if (event.phase == TickEvent.Phase.END)
+			flush(null);
+	}
+
+	@SubscribeEvent
+	public static void onWorldSave(@Nonnull final WorldEvent.Save event) {
+		flushAndSave(event.getWorld());
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(@Nonnull final WorldEvent.Unload event) {
+		flushAndSave(event.getWorld());
+	}
+}
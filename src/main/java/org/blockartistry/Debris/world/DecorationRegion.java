@@ -0,0 +1,322 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.lang.reflect.Field;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.blockartistry.Debris.ModLog;
+import org.blockartistry.Debris.ModOptions;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Read view of the 2x2 chunk window touched while decorating a chunk. The
+ * section storage of the four chunks is resolved once when the region is
+ * created so that block probes go straight to ExtendedBlockStorage rather than
+ * through the World chunk lookup. Positions that fall outside of the window
+ * are passed through to the World.
+ *
+ * In strict mode the window chunks are only looked up, never loaded or
+ * generated, and nothing outside of the window is read or written: reads
+ * come back as air that cannot be placed into and writes are dropped.
+ * Accesses outside the window are counted either way.
+ */
+public class DecorationRegion implements IDecorationView {
+
+	private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+	private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+	// Number of non-air blocks in a section. Not exposed by the storage so it
+	// is pulled via reflection. If it cannot be found the full section check
+	// is simply not performed.
+	private static final Field BLOCK_REF_COUNT;
+
+	static {
+		Field field = null;
+		try {
+			field = ReflectionHelper.findField(ExtendedBlockStorage.class, "blockRefCount", "field_76682_b");
+		} catch (@Nonnull final Throwable t) {
+			ModLog.warn("Unable to locate 'blockRefCount' in ExtendedBlockStorage; full section checks disabled");
+		}
+		BLOCK_REF_COUNT = field;
+	}
+
+	protected final World world;
+	protected final int chunkX;
+	protected final int chunkZ;
+	protected final Chunk[] chunks = new Chunk[4];
+	protected final ExtendedBlockStorage[][] storage = new ExtendedBlockStorage[4][];
+	protected final DebrisWriter writer;
+	protected final boolean strict;
+	protected final boolean complete;
+
+	// Counts for DecorationStats, added in by finish()
+	protected int placed;
+	protected int outside;
+	protected int cascade;
+
+	// Cached full section state: 0 = not checked, 1 = full, 2 = has air.
+	// Decoration only ever fills air so a cached answer never goes stale in
+	// a way that would matter.
+	protected final byte[] fullState = new byte[4 * 16];
+
+	public DecorationRegion(@Nonnull final World world, @Nonnull final BlockPos origin) {
+		this(world, origin, ModOptions.strictWindow);
+	}
+
+	public DecorationRegion(@Nonnull final World world, @Nonnull final BlockPos origin, final boolean strict) {
+		this.world = world;
+		this.chunkX = origin.getX() >> 4;
+		this.chunkZ = origin.getZ() >> 4;
+		this.strict = strict;
+
+		boolean loaded = true;
+		for (int i = 0; i < 4; i++) {
+			final int cx = this.chunkX + (i & 1);
+			final int cz = this.chunkZ + (i >> 1);
+			final Chunk chunk = strict ? world.getChunkProvider().getLoadedChunk(cx, cz)
+					: world.getChunkFromChunkCoords(cx, cz);
+			if (chunk == null) {
+				loaded = false;
+				break;
+			}
+			this.chunks[i] = chunk;
+			this.storage[i] = chunk.getBlockStorageArray();
+		}
+
+		this.complete = loaded;
+		this.writer = new DebrisWriter(world);
+	}
+
+	/**
+	 * Indicates whether all four chunks of the window are present. Can only
+	 * be false in strict mode, and the region must not be used if it is.
+	 */
+	public boolean isComplete() {
+		return this.complete;
+	}
+
+	/**
+	 * Accounts for an access outside of the window and indicates whether it
+	 * may go through to the World.
+	 */
+	protected boolean allowOutside(final int x, final int z) {
+		this.outside++;
+		if (this.world.getChunkProvider().getLoadedChunk(x >> 4, z >> 4) == null)
+			this.cascade++;
+		return !this.strict;
+	}
+
+	/**
+	 * Returns the section that contains the position, or null if the section
+	 * is empty or the Y is outside of the world. Positions outside of the
+	 * window return null as well so callers must check isInWindow() first.
+	 */
+	@Nullable
+	protected ExtendedBlockStorage getSection(final int x, final int y, final int z) {
+		if (y < 0 || y > 255)
+			return null;
+		final int idx = ((x >> 4) - this.chunkX) | (((z >> 4) - this.chunkZ) << 1);
+		final ExtendedBlockStorage section = this.storage[idx][y >> 4];
+		return section == Chunk.NULL_BLOCK_STORAGE || section.isEmpty() ? null : section;
+	}
+
+	@Nonnull
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Indicates whether the section containing the position is all air.
+	 * Position must be within the window.
+	 */
+	@Override
+	public boolean isSectionEmpty(final int x, final int y, final int z) {
+		return getSection(x, y, z) == null;
+	}
+
+	/**
+	 * Indicates whether the section containing the position has no air.
+	 * Position must be within the window.
+	 */
+	@Override
+	public boolean isSectionFull(final int x, final int y, final int z) {
+		final ExtendedBlockStorage section = getSection(x, y, z);
+		return section != null && isSectionFull(section, x, y, z);
+	}
+
+	public boolean isInWindow(final int x, final int y, final int z) {
+		final int dx = (x >> 4) - this.chunkX;
+		final int dz = (z >> 4) - this.chunkZ;
+		return y >= 0 && y < 256 && (dx & ~1) == 0 && (dz & ~1) == 0;
+	}
+
+	/**
+	 * Indicates whether the section containing the position has no air
+	 * blocks.
+	 */
+	protected boolean isSectionFull(@Nonnull final ExtendedBlockStorage section, final int x, final int y,
+			final int z) {
+		final int idx = (((x >> 4) - this.chunkX) | (((z >> 4) - this.chunkZ) << 1)) << 4 | (y >> 4);
+		if (this.fullState[idx] == 0)
+			this.fullState[idx] = (byte) (isSectionFull(section) ? 1 : 2);
+		return this.fullState[idx] == 1;
+	}
+
+	protected static boolean isSectionFull(@Nonnull final ExtendedBlockStorage section) {
+		if (BLOCK_REF_COUNT == null)
+			return false;
+		try {
+			return BLOCK_REF_COUNT.getInt(section) == SECTION_VOLUME;
+		} catch (@Nonnull final Throwable t) {
+			return false;
+		}
+	}
+
+	@Override
+	@Nonnull
+	public IBlockState getBlockState(final int x, final int y, final int z) {
+		if (!isInWindow(x, y, z))
+			return allowOutside(x, z) ? this.world.getBlockState(new BlockPos(x, y, z)) : AIR;
+		final ExtendedBlockStorage section = getSection(x, y, z);
+		return section == null ? AIR : section.get(x & 15, y & 15, z & 15);
+	}
+
+	@Override
+	public boolean isAirBlock(final int x, final int y, final int z) {
+		if (!isInWindow(x, y, z))
+			return allowOutside(x, z)
+					&& this.world.getBlockState(new BlockPos(x, y, z)).getBlock() == Blocks.AIR;
+		final ExtendedBlockStorage section = getSection(x, y, z);
+		if (section == null)
+			return true;
+		if (isSectionFull(section, x, y, z))
+			return false;
+		return section.get(x & 15, y & 15, z & 15).getBlock() == Blocks.AIR;
+	}
+
+	@Override
+	public void placeDebris(@Nonnull final BlockPos pos, @Nonnull final IBlockState state) {
+		final int x = pos.getX();
+		final int z = pos.getZ();
+		if (!isInWindow(x, pos.getY(), z)) {
+			if (allowOutside(x, z)) {
+				this.world.setBlockState(pos, state);
+				DebrisJournal.record(this.world, pos, state);
+				this.placed++;
+			}
+			return;
+		}
+		final int idx = ((x >> 4) - this.chunkX) | (((z >> 4) - this.chunkZ) << 1);
+		this.writer.write(this.chunks[idx], pos, state);
+		DebrisJournal.record(this.world, pos, state);
+		this.placed++;
+	}
+
+	/**
+	 * Completes any lighting work deferred by the placements and adds the
+	 * region's counts to DecorationStats.
+	 */
+	public void finish() {
+		this.writer.finish();
+		if (this.placed > 0)
+			DecorationStats.placed.addAndGet(this.placed);
+		if (this.outside > 0) {
+			DecorationStats.outsideWindow.addAndGet(this.outside);
+			DecorationStats.wouldCascade.addAndGet(this.cascade);
+		}
+		this.placed = this.outside = this.cascade = 0;
+	}
+
+	@Override
+	@Nonnull
+	public IBlockState getBlockState(@Nonnull final BlockPos pos) {
+		return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	public boolean isAirBlock(@Nonnull final BlockPos pos) {
+		return isAirBlock(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	@Nullable
+	public TileEntity getTileEntity(@Nonnull final BlockPos pos) {
+		if (!isInWindow(pos.getX(), pos.getY(), pos.getZ()) && !allowOutside(pos.getX(), pos.getZ()))
+			return null;
+		return this.world.getTileEntity(pos);
+	}
+
+	@Override
+	public int getStrongPower(@Nonnull final BlockPos pos, @Nonnull final EnumFacing direction) {
+		if (!isInWindow(pos.getX(), pos.getY(), pos.getZ()) && !allowOutside(pos.getX(), pos.getZ()))
+			return 0;
+		return this.world.getStrongPower(pos, direction);
+	}
+
+	@Override
+	public boolean isSideSolid(@Nonnull final BlockPos pos, @Nonnull final EnumFacing side, final boolean _default) {
+		if (!isInWindow(pos.getX(), pos.getY(), pos.getZ()))
+			return allowOutside(pos.getX(), pos.getZ()) ? this.world.isSideSolid(pos, side, _default) : false;
+		final IBlockState state = getBlockState(pos);
+		return state.getBlock().isSideSolid(state, this, pos, side);
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public int getCombinedLight(@Nonnull final BlockPos pos, final int lightValue) {
+		return this.world.getCombinedLight(pos, lightValue);
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	@Nonnull
+	public Biome getBiome(@Nonnull final BlockPos pos) {
+		return this.world.getBiome(pos);
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	@Nonnull
+	public WorldType getWorldType() {
+		return this.world.getWorldType();
+	}
+
+}
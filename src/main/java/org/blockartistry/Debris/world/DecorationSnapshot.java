@@ -0,0 +1,176 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Detached copy of the block states in a box of the world. It is captured on
+ * the server thread and can then be read from any thread. Placements made
+ * against the snapshot update the copy, so later rule checks see them the
+ * same way they would in the world, and are recorded in a PlacementPlan to
+ * be written back to the world on the server thread. Reads outside of the
+ * captured box return air.
+ */
+public class DecorationSnapshot implements IDecorationView {
+
+	private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	private final IBlockState[] states;
+	private final PlacementPlan plan = new PlacementPlan();
+
+	/**
+	 * Copies the box from minimum to maximum, inclusive, out of the region.
+	 * The box must lie within the region window.
+	 */
+	public DecorationSnapshot(@Nonnull final DecorationRegion region, final int minX, final int minY,
+			final int minZ, final int maxX, final int maxY, final int maxZ) {
+		this.minX = minX;
+		this.minY = Math.max(minY, 0);
+		this.minZ = minZ;
+		this.sizeX = maxX - minX + 1;
+		this.sizeY = Math.min(maxY, 255) - this.minY + 1;
+		this.sizeZ = maxZ - minZ + 1;
+		this.states = new IBlockState[this.sizeX * this.sizeY * this.sizeZ];
+
+		int idx = 0;
+		for (int y = 0; y < this.sizeY; y++)
+			for (int z = 0; z < this.sizeZ; z++)
+				for (int x = 0; x < this.sizeX; x++)
+					this.states[idx++] = region.getBlockState(this.minX + x, this.minY + y, this.minZ + z);
+	}
+
+	private int index(final int x, final int y, final int z) {
+		final int dx = x - this.minX;
+		final int dy = y - this.minY;
+		final int dz = z - this.minZ;
+		if (dx < 0 || dx >= this.sizeX || dy < 0 || dy >= this.sizeY || dz < 0 || dz >= this.sizeZ)
+			return -1;
+		return (dy * this.sizeZ + dz) * this.sizeX + dx;
+	}
+
+	@Nonnull
+	public PlacementPlan getPlan() {
+		return this.plan;
+	}
+
+	@Override
+	@Nonnull
+	public IBlockState getBlockState(final int x, final int y, final int z) {
+		final int idx = index(x, y, z);
+		return idx < 0 ? AIR : this.states[idx];
+	}
+
+	@Override
+	public boolean isAirBlock(final int x, final int y, final int z) {
+		return getBlockState(x, y, z).getBlock() == Blocks.AIR;
+	}
+
+	@Override
+	public boolean isSectionEmpty(final int x, final int y, final int z) {
+		return false;
+	}
+
+	@Override
+	public boolean isSectionFull(final int x, final int y, final int z) {
+		return false;
+	}
+
+	@Override
+	public void placeDebris(@Nonnull final BlockPos pos, @Nonnull final IBlockState state) {
+		final int idx = index(pos.getX(), pos.getY(), pos.getZ());
+		if (idx >= 0)
+			this.states[idx] = state;
+		this.plan.add(pos, state);
+	}
+
+	@Override
+	@Nonnull
+	public IBlockState getBlockState(@Nonnull final BlockPos pos) {
+		return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	public boolean isAirBlock(@Nonnull final BlockPos pos) {
+		return isAirBlock(pos.getX(), pos.getY(), pos.getZ());
+	}
+
+	@Override
+	@Nullable
+	public TileEntity getTileEntity(@Nonnull final BlockPos pos) {
+		return null;
+	}
+
+	@Override
+	public int getStrongPower(@Nonnull final BlockPos pos, @Nonnull final EnumFacing direction) {
+		return 0;
+	}
+
+	@Override
+	public boolean isSideSolid(@Nonnull final BlockPos pos, @Nonnull final EnumFacing side, final boolean _default) {
+		if (index(pos.getX(), pos.getY(), pos.getZ()) < 0)
+			return _default;
+		final IBlockState state = getBlockState(pos);
+		return state.getBlock().isSideSolid(state, this, pos, side);
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public int getCombinedLight(@Nonnull final BlockPos pos, final int lightValue) {
+		return 0;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	@Nonnull
+	public Biome getBiome(@Nonnull final BlockPos pos) {
+		return Biomes.DEFAULT;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	@Nonnull
+	public WorldType getWorldType() {
+		return WorldType.DEFAULT;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.blockartistry.Debris.ModLog;
+
+/**
+ * Running totals for debris decoration since the server started. Regions
+ * accumulate their counts locally and add them in once per chunk so the
+ * counters are not touched per block.
+ */
+public final class DecorationStats {
+
+	// Chunks decorated, and chunks skipped because the decoration window
+	// was not fully loaded in strict mode.
+	public static final AtomicLong chunksDecorated = new AtomicLong();
+	public static final AtomicLong chunksSkipped = new AtomicLong();
+
+	// Debris blocks written to the world
+	public static final AtomicLong placed = new AtomicLong();
+
+	// Reads and writes that fell outside of the decoration window, and how
+	// many of those hit a chunk that was not loaded. Outside of strict mode
+	// the latter are the ones that caused chunks to be loaded or generated.
+	public static final AtomicLong outsideWindow = new AtomicLong();
+	public static final AtomicLong wouldCascade = new AtomicLong();
+
+	// Planned placements dropped when the plan was applied because the chunk
+	// had unloaded or the position was no longer valid.
+	public static final AtomicLong planDropped = new AtomicLong();
+
+	// Existing chunks that have been given debris by retrogen
+	public static final AtomicLong retrogenChunks = new AtomicLong();
+
+	private DecorationStats() {
+	}
+
+	public static void reset() {
+		chunksDecorated.set(0);
+		chunksSkipped.set(0);
+		placed.set(0);
+		outsideWindow.set(0);
+		wouldCascade.set(0);
+		planDropped.set(0);
+		retrogenChunks.set(0);
+	}
+
+	public static void log() {
+		ModLog.info("Decoration: %d chunks decorated, %d skipped (window not loaded), %d debris placed",
+				chunksDecorated.get(), chunksSkipped.get(), placed.get());
+		ModLog.info("Decoration: %d accesses outside the window, %d to unloaded chunks, %d planned placements dropped",
+				outsideWindow.get(), wouldCascade.get(), planDropped.get());
+		if (retrogenChunks.get() > 0)
+			ModLog.info("Decoration: %d existing chunks retrogenned", retrogenChunks.get());
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.blocks.ModBlocks;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * List of the cave floor positions within a 16x16 area where debris can be
+ * placed. The area is scanned once, column by column, and the positions are
+ * packed into an int array as (y << 8) | (z << 4) | x relative to the origin
+ * of the area. The list is reused between builds.
+ */
+public class FloorIndex {
+
+	private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+	private int[] candidates = new int[256];
+	private int count;
+
+	private int originX;
+	private int originZ;
+
+	public FloorIndex() {
+	}
+
+	private void add(final int packed) {
+		if (this.count == this.candidates.length)
+			this.candidates = Arrays.copyOf(this.candidates, this.count * 2);
+		this.candidates[this.count++] = packed;
+	}
+
+	/**
+	 * Scans the 16x16 area starting at the origin between minY and maxY,
+	 * inclusive, for air blocks where debris can stay. Only the 16 block bands
+	 * set in bandMask (bit n for y >> 4 == n) are scanned. Returns the number
+	 * of candidates found.
+	 */
+	public int build(@Nonnull final IDecorationView region, final int originX, final int originZ, final int minY,
+			final int maxY, final int bandMask) {
+		this.count = 0;
+		this.originX = originX;
+		this.originZ = originZ;
+
+		for (int lz = 0; lz < 16; lz++) {
+			final int z = originZ + lz;
+			for (int lx = 0; lx < 16; lx++) {
+				final int x = originX + lx;
+				// Stay clear of y = 0 so the section below is never negative
+				for (int y = Math.max(minY, 1); y <= maxY; y++) {
+					// Band gets no debris
+					if (((bandMask >>> (y >> 4)) & 1) == 0) {
+						y |= 15;
+						continue;
+					}
+					// No air in the section means no floor positions
+					if (region.isSectionFull(x, y, z)) {
+						y |= 15;
+						continue;
+					}
+					// All air in this section as well as the one below means
+					// there is nothing to stand on
+					if (region.isSectionEmpty(x, y, z) && region.isSectionEmpty(x, y - 1, z)) {
+						y |= 15;
+						continue;
+					}
+					if (!region.isAirBlock(x, y, z))
+						continue;
+					this.pos.setPos(x, y, z);
+					if (ModBlocks.DEBRIS.canBlockStay(region, this.pos, null))
+						add((y << 8) | (lz << 4) | lx);
+				}
+			}
+		}
+
+		return this.count;
+	}
+
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * Draws a random candidate out of the list and sets the position. Each
+	 * candidate is drawn at most once per build. Returns false when the list
+	 * is exhausted.
+	 */
+	public boolean next(@Nonnull final Random rand, @Nonnull final BlockPos.MutableBlockPos target) {
+		if (this.count == 0)
+			return false;
+
+		final int idx = rand.nextInt(this.count);
+		final int packed = this.candidates[idx];
+		this.candidates[idx] = this.candidates[--this.count];
+
+		target.setPos(this.originX + (packed & 15), packed >> 8, this.originZ + ((packed >> 4) & 15));
+		return true;
+	}
+}
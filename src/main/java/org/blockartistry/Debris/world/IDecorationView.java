@@ -0,0 +1,66 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import javax.annotation.Nonnull;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+
+/**
+ * The blocks that debris placement looks at and writes to while decorating a
+ * chunk. Implemented over the live world as well as over detached snapshots
+ * so the same placement rules can run in either case.
+ */
+public interface IDecorationView extends IBlockAccess {
+
+	@Nonnull
+	IBlockState getBlockState(final int x, final int y, final int z);
+
+	/**
+	 * Indicates the block is Blocks.AIR. Blocks that only report themselves
+	 * as air through Block.isAir do not count so the answer is the same as
+	 * the section checks below.
+	 */
+	boolean isAirBlock(final int x, final int y, final int z);
+
+	/**
+	 * Indicates the 16x16x16 section containing the position is known to be
+	 * all air. It is fine to return false if unknown.
+	 */
+	boolean isSectionEmpty(final int x, final int y, final int z);
+
+	/**
+	 * Indicates the 16x16x16 section containing the position is known to
+	 * have no air. It is fine to return false if unknown.
+	 */
+	boolean isSectionFull(final int x, final int y, final int z);
+
+	/**
+	 * Places a debris block. Later reads of the view see the new state.
+	 */
+	void placeDebris(@Nonnull final BlockPos pos, @Nonnull final IBlockState state);
+}
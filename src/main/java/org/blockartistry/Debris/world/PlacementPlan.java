@@ -0,0 +1,89 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.blocks.ModBlocks;
+
+import gnu.trove.list.array.TLongArrayList;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Ordered list of debris placements computed for a chunk that have yet to be
+ * written to the world.
+ */
+public class PlacementPlan {
+
+	private final TLongArrayList positions = new TLongArrayList();
+	private final List<IBlockState> states = new ArrayList<IBlockState>();
+
+	public PlacementPlan() {
+	}
+
+	public void add(@Nonnull final BlockPos pos, @Nonnull final IBlockState state) {
+		this.positions.add(pos.toLong());
+		this.states.add(state);
+	}
+
+	public int size() {
+		return this.states.size();
+	}
+
+	/**
+	 * Writes the planned placements to the world in the order they were
+	 * planned. Each position is checked again before writing in case the
+	 * world changed since the plan was made. Returns the number of blocks
+	 * written.
+	 */
+	public int apply(@Nonnull final World world) {
+		final DebrisWriter writer = new DebrisWriter(world);
+		int written = 0;
+		for (int i = 0; i < this.states.size(); i++) {
+			final BlockPos pos = BlockPos.fromLong(this.positions.get(i));
+			final Chunk chunk = world.getChunkProvider().getLoadedChunk(pos.getX() >> 4, pos.getZ() >> 4);
+			// Only Blocks.AIR counts, the same as in IDecorationView
+			if (chunk != null && chunk.getBlockState(pos).getBlock() == Blocks.AIR
+					&& ModBlocks.DEBRIS.canBlockStay(world, pos, null)) {
+				writer.write(chunk, pos, this.states.get(i));
+				DebrisJournal.record(world, pos, this.states.get(i));
+				written++;
+			}
+		}
+		writer.finish();
+
+		DecorationStats.placed.addAndGet(written);
+		if (written < this.states.size())
+			DecorationStats.planDropped.addAndGet(this.states.size() - written);
+		return written;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import java.util.ArrayDeque;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.ModOptions;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.procedure.TIntObjectProcedure;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.event.world.ChunkDataEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Adds debris to chunks that were generated before the mod was installed.
+ *
+ * Chunks that have had debris placed, either by generation or by retrogen,
+ * carry a marker in their NBT. A chunk loaded from disk without the marker
+ * is queued, and the queue is worked at the end of each server tick until
+ * the time budget runs out. A chunk is processed with the same rules as
+ * generation once the three chunks its decoration window reaches into are
+ * loaded; nothing is ever loaded to make that happen. When one of those
+ * neighbors loads later the waiting chunk is queued again. Since unmarked
+ * chunks are queued whenever they load, work left over at shutdown picks up
+ * again next time.
+ */
+@Mod.EventBusSubscriber
+public final class Retrogen {
+
+	// Marker written to the root compound of the chunk NBT
+	public static final String NBT_DEBRIS = "Debris";
+	public static final String NBT_GENERATED = "Gen";
+
+	private static final class WorldState {
+		// Loaded chunks that carry the marker
+		public final TLongHashSet generated = new TLongHashSet();
+		public final ArrayDeque<Long> queue = new ArrayDeque<Long>();
+		public final TLongHashSet queued = new TLongHashSet();
+
+		public void enqueue(final long key) {
+			if (this.queued.add(key))
+				this.queue.add(key);
+		}
+	}
+
+	private static final TIntObjectHashMap<WorldState> worlds = new TIntObjectHashMap<WorldState>();
+
+	private Retrogen() {
+	}
+
+	@Nonnull
+	private static WorldState getState(@Nonnull final World world) {
+		final int dimension = world.provider.getDimension();
+		WorldState state = worlds.get(dimension);
+		if (state == null) {
+			state = new WorldState();
+			worlds.put(dimension, state);
+		}
+		return state;
+	}
+
+	/**
+	 * Records that generation has placed debris in the chunk.
+	 */
+	public static void markGenerated(@Nonnull final World world, final int chunkX, final int chunkZ) {
+		if (!world.isRemote)
+			getState(world).generated.add(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	/**
+	 * Number of chunks waiting to be processed.
+	 */
+	public static int getQueued() {
+		int total = 0;
+		for (final WorldState state : worlds.valueCollection())
+			total += state.queue.size();
+		return total;
+	}
+
+	@SubscribeEvent
+	public static void onChunkLoad(@Nonnull final ChunkDataEvent.Load event) {
+		final World world = event.getWorld();
+		if (world.isRemote)
+			return;
+
+		final Chunk chunk = event.getChunk();
+		final WorldState state = getState(world);
+		final long key = ChunkPos.asLong(chunk.xPosition, chunk.zPosition);
+
+		if (event.getData().getCompoundTag(NBT_DEBRIS).getBoolean(NBT_GENERATED)) {
+			state.generated.add(key);
+		} else if (ModOptions.retrogen) {
+			state.enqueue(key);
+		}
+
+		if (!ModOptions.retrogen)
+			return;
+
+		// This chunk may complete the window of a neighbor that is waiting
+		for (int dx = -1; dx <= 0; dx++) {
+			for (int dz = -1; dz <= 0; dz++) {
+				if (dx == 0 && dz == 0)
+					continue;
+				final int x = chunk.xPosition + dx;
+				final int z = chunk.zPosition + dz;
+				final long neighbor = ChunkPos.asLong(x, z);
+				if (!state.generated.contains(neighbor) && world.getChunkProvider().getLoadedChunk(x, z) != null)
+					state.enqueue(neighbor);
+			}
+		}
+	}
+
+	@SubscribeEvent
+	public static void onChunkSave(@Nonnull final ChunkDataEvent.Save event) {
+		final World world = event.getWorld();
+		if (world.isRemote)
+			return;
+
+		final Chunk chunk = event.getChunk();
+		final WorldState state = getState(world);
+		final long key = ChunkPos.asLong(chunk.xPosition, chunk.zPosition);
+
+		if (state.generated.contains(key)) {
+			final NBTTagCompound nbt = event.getData().getCompoundTag(NBT_DEBRIS);
+			nbt.setBoolean(NBT_GENERATED, true);
+			event.getData().setTag(NBT_DEBRIS, nbt);
+		}
+
+		// Final save before the chunk goes away
+		if (!chunk.isLoaded())
+			state.generated.remove(key);
+	}
+
+	@SubscribeEvent
+	public static void onWorldUnload(@Nonnull final WorldEvent.Unload event) {
+		if (!event.getWorld().isRemote)
+			worlds.remove(event.getWorld().provider.getDimension());
+	}
+
+	@SubscribeEvent
+	public static void onServerTick(@Nonnull final TickEvent.ServerTickEvent event) {
+		if (event.phase != TickEvent.Phase.END || !ModOptions.retrogen || !ModOptions.enableDebris)
+			return;
+
+		final long deadline = System.nanoTime() + ModOptions.retrogenBudget * 1000000L;
+		worlds.forEachEntry(new TIntObjectProcedure<WorldState>() {
+			@Override
+			public boolean execute(final int dimension, @Nonnull final WorldState state) {
+				final WorldServer world = DimensionManager.getWorld(dimension);
+				if (world != null)
+					process(world, state, deadline);
+				return System.nanoTime() < deadline;
+			}
+		});
+	}
+
+	private static void process(@Nonnull final WorldServer world, @Nonnull final WorldState state,
+			final long deadline) {
+		while (!state.queue.isEmpty() && System.nanoTime() < deadline) {
+			final long key = state.queue.poll();
+			state.queued.remove(key);
+			if (state.generated.contains(key))
+				continue;
+
+			// Chunks that unloaded will be queued again when they load, and
+			// unpopulated ones get debris when they populate.
+			final int chunkX = (int) key;
+			final int chunkZ = (int) (key >> 32);
+			final Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+			if (chunk == null || !chunk.isTerrainPopulated())
+				continue;
+
+			final BlockPos origin = new BlockPos(chunkX << 4, 0, chunkZ << 4);
+			if (DebrisBiomeDecorator.decorate(world, origin, null, true)) {
+				state.generated.add(key);
+				chunk.setChunkModified();
+				DecorationStats.retrogenChunks.incrementAndGet();
+			}
+		}
+	}
+}
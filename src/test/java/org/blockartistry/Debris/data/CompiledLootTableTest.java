@@ -0,0 +1,148 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.data;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.blockartistry.Debris.AllocationCounter;
+import org.blockartistry.Debris.BenchmarkEnvironment;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.world.storage.loot.LootContext;
+import net.minecraft.world.storage.loot.LootPool;
+import net.minecraft.world.storage.loot.LootTable;
+
+/**
+ * Allocation per harvest of the compiled loot path. Apart from the dropped
+ * ItemStacks a harvest should allocate nothing: no LootContext, no lists
+ * and no boxed luck for the table lookup.
+ */
+public class CompiledLootTableTest {
+
+	private static final int WARMUP = 20000;
+	private static final int HARVESTS = 100000;
+
+	// Slack for the counter itself and anything the JIT has not settled
+	private static final long SLACK_PER_HARVEST = 8;
+
+	private final Random rand = new Random(1234L);
+
+	private CompiledLootTable compiled;
+	private CompiledLootTable.IContextSource context;
+	private Counter counter;
+
+	// Drops are kept so the JIT cannot leave out their allocation
+	private static final class Counter implements IDropConsumer {
+		public long drops;
+		public ItemStack last;
+
+		@Override
+		public void accept(@Nonnull final ItemStack stack) {
+			this.last = stack;
+			this.drops++;
+		}
+	}
+
+	@Before
+	public void setup() {
+		BenchmarkEnvironment.init();
+		final LootPool pool = new LootPoolBuilder("pile_of_rubble").setRoll(1, 3).add("minecraft:cobblestone", 80, 1, 3)
+				.add("minecraft:gravel", 60, 1, 2).add("minecraft:coal", 30, 1, 4).add("minecraft:iron_ore", 10, 1, 1)
+				.add("minecraft:flint", 20, 1, 2).add("minecraft:torch", 15, 1, 6).build();
+		this.compiled = CompiledLootTable.get(new LootTable(new LootPool[] { pool }));
+		assertNotNull("table did not compile", this.compiled);
+		this.context = new CompiledLootTable.IContextSource() {
+			@Override
+			@Nonnull
+			public LootContext get() {
+				throw new AssertionError("compiled pool fell back to vanilla");
+			}
+		};
+		this.counter = new Counter();
+	}
+
+	private long harvest(@Nonnull final AllocationCounter allocation, final int count, final float luck) {
+		final long start = allocation.get();
+		for (int i = 0; i < count; i++)
+			this.compiled.generate(this.counter, this.rand, luck, this.context);
+		return allocation.get() - start;
+	}
+
+	/**
+	 * Bytes allocated by count copies of the stack, which is what the drops
+	 * of a harvest cost.
+	 */
+	private long copy(@Nonnull final AllocationCounter allocation, @Nonnull final ItemStack stack, final long count) {
+		final long start = allocation.get();
+		for (long i = 0; i < count; i++)
+			this.counter.last = stack.copy();
+		return allocation.get() - start;
+	}
+
+	@Test
+	public void harvestAllocatesOnlyTheDrops() {
+		final AllocationCounter allocation = new AllocationCounter();
+		final ItemStack stack = new ItemStack(Items.COAL);
+
+		harvest(allocation, WARMUP, 0F);
+		copy(allocation, stack, WARMUP);
+
+		this.counter.drops = 0;
+		final long bytes = harvest(allocation, HARVESTS, 0F);
+		final long drops = this.counter.drops;
+		final long stacks = copy(allocation, stack, drops);
+
+		final long extra = bytes - stacks;
+		assertTrue(String.format("%.1f bytes per harvest beyond the %.1f drops", (double) extra / HARVESTS,
+				(double) drops / HARVESTS), extra <= SLACK_PER_HARVEST * HARVESTS);
+	}
+
+	@Test
+	public void luckyHarvestAllocatesOnlyTheDrops() {
+		final AllocationCounter allocation = new AllocationCounter();
+		final ItemStack stack = new ItemStack(Items.COAL);
+
+		// A cached nonzero luck still goes through the map
+		harvest(allocation, WARMUP, 1F);
+		copy(allocation, stack, WARMUP);
+
+		this.counter.drops = 0;
+		final long bytes = harvest(allocation, HARVESTS, 1F);
+		final long stacks = copy(allocation, stack, this.counter.drops);
+
+		// The boxed key is the only thing allowed on top of the drops
+		final long extra = bytes - stacks;
+		assertTrue(String.format("%.1f bytes per harvest beyond the drops", (double) extra / HARVESTS),
+				extra <= (SLACK_PER_HARVEST + 16) * HARVESTS);
+	}
+}
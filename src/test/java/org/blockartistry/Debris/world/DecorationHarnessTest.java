@@ -0,0 +1,104 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.blockartistry.Debris.ModOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Runs the decoration harness headless on a small square of chunks. The
+ * adaptive controller is turned off so that every run starts from the same
+ * state and the layout depends on nothing but the seed.
+ */
+public class DecorationHarnessTest {
+
+	private static final long SEED = 1234L;
+	private static final int SIZE = 8;
+
+	private boolean adaptive;
+
+	@Before
+	public void setup() {
+		DecorationHarness.init();
+		this.adaptive = ModOptions.adaptiveAttempts;
+		ModOptions.adaptiveAttempts = false;
+	}
+
+	@After
+	public void teardown() {
+		ModOptions.adaptiveAttempts = this.adaptive;
+	}
+
+	@Test
+	public void reportsPlacement() {
+		final DecorationHarness.Result result = DecorationHarness.run(SEED, SIZE);
+		assertEquals(SIZE * SIZE, result.chunks);
+		assertTrue("no attempts were made", result.attempts > 0);
+		assertTrue("no debris was placed", result.placed > 0);
+		// Each attempt places at most one block
+		assertTrue(result.placed + " placed from " + result.attempts + " attempts",
+				result.placed <= result.attempts);
+		assertTrue(result.chunksPerSecond() > 0);
+		assertTrue(result.bytesPerChunk() >= 0);
+	}
+
+	@Test
+	public void attemptsMatchTheDecorator() {
+		final HeadlessWorld world = DecorationHarness.createWorld(SEED, SIZE);
+		final long attempts = DecorationHarness.decorate(world, SIZE);
+
+		final int dimension = world.provider.getDimension();
+		final int groundLevel = world.provider.getAverageGroundLevel();
+		long expected = 0;
+		for (int cx = 0; cx < SIZE; cx++) {
+			for (int cz = 0; cz < SIZE; cz++) {
+				final DebrisProfile profile = DebrisProfiles.get().getProfile(dimension,
+						world.getBiome(new BlockPos((cx << 4) + 16, 0, (cz << 4) + 16)));
+				if (profile.isEnabled() && profile.getMaxY(groundLevel) - profile.getMinY() >= 1)
+					expected += Math.max(0,
+							DebrisBiomeDecorator.getAttempts(profile, SEED, dimension, groundLevel, cx, cz));
+			}
+		}
+		assertEquals(expected, attempts);
+	}
+
+	@Test
+	public void sameSeedSameLayout() {
+		final HeadlessWorld first = DecorationHarness.createWorld(SEED, SIZE);
+		DecorationHarness.decorate(first, SIZE);
+		final HeadlessWorld second = DecorationHarness.createWorld(SEED, SIZE);
+		DecorationHarness.decorate(second, SIZE);
+
+		assertNull(WritePathVerifier.compare(first, second, SIZE));
+	}
+}
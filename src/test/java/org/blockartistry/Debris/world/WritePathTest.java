@@ -0,0 +1,113 @@
+/*
+ * This file is part of Debris, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) OreCruncher
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.blockartistry.Debris.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * The direct write path has to leave the world the same as setBlockState()
+ * would, both for debris and for states that make finish() relight.
+ */
+public class WritePathTest {
+
+	private static final long SEED = 1234L;
+	private static final int SIZE = 4;
+
+	@Before
+	public void setup() {
+		DecorationHarness.init();
+	}
+
+	@Test
+	public void directWritesMatchSetBlockState() {
+		final HeadlessWorld slow = WritePathVerifier.decorate(SEED, SIZE, false);
+		final HeadlessWorld fast = WritePathVerifier.decorate(SEED, SIZE, true);
+
+		long placed = 0;
+		for (int cx = 0; cx <= SIZE; cx++)
+			for (int cz = 0; cz <= SIZE; cz++)
+				placed += DecorationHarness.countDebris(fast.generate(cx, cz));
+		assertTrue("no debris was placed", placed > 0);
+
+		assertNull(WritePathVerifier.compare(slow, fast, SIZE));
+	}
+
+	/**
+	 * Glowstone changes both opacity and light, so every write is fixed up by
+	 * finish(). Block light and the height maps have to come out the same.
+	 */
+	@Test
+	public void relightMatchesSetBlockState() {
+		final HeadlessWorld slow = DecorationHarness.createWorld(SEED, 2);
+		final HeadlessWorld fast = DecorationHarness.createWorld(SEED, 2);
+		final IBlockState glowstone = Blocks.GLOWSTONE.getDefaultState();
+
+		final Chunk chunk = fast.generate(1, 1);
+		final DebrisWriter writer = new DebrisWriter(fast, true);
+		for (int i = 0; i < 16; i++) {
+			final int x = 16 + i;
+			final int z = 16 + ((i * 7) & 15);
+			final BlockPos pos = new BlockPos(x, chunk.getHeightValue(x & 15, z & 15), z);
+			slow.setBlockState(pos, glowstone);
+			writer.write(chunk, pos, glowstone);
+		}
+		writer.finish();
+
+		for (int cx = 0; cx <= 2; cx++)
+			for (int cz = 0; cz <= 2; cz++)
+				compare(slow, fast, cx, cz);
+	}
+
+	private static void compare(@Nonnull final World slow, @Nonnull final World fast, final int cx, final int cz) {
+		final Chunk a = slow.getChunkFromChunkCoords(cx, cz);
+		final Chunk b = fast.getChunkFromChunkCoords(cx, cz);
+		final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (int x = 0; x < 16; x++) {
+			for (int z = 0; z < 16; z++) {
+				assertEquals("height map", a.getHeightValue(x, z), b.getHeightValue(x, z));
+				for (int y = 0; y < 256; y++) {
+					pos.setPos((cx << 4) + x, y, (cz << 4) + z);
+					assertEquals("block at " + pos, a.getBlockState(pos), b.getBlockState(pos));
+					assertEquals("block light at " + pos, a.getLightFor(EnumSkyBlock.BLOCK, pos),
+							b.getLightFor(EnumSkyBlock.BLOCK, pos));
+				}
+			}
+		}
+	}
+}